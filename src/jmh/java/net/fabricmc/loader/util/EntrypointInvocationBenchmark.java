@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compares method reference entrypoints implemented through LambdaMetafactory with the
+ * reflective proxies used before, both for creating them and for calling them.
+ *
+ * <p>Run with {@code gradlew jmh}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntrypointInvocationBenchmark {
+	public static class Target {
+		public static int twice(int value) {
+			return value * 2;
+		}
+
+		public int addOne(int value) {
+			return value + 1;
+		}
+	}
+
+	private Method staticMethod;
+	private Method instanceMethod;
+	private Target target;
+	private IntUnaryOperator staticLambda;
+	private IntUnaryOperator instanceLambda;
+	private IntUnaryOperator staticProxy;
+	private IntUnaryOperator instanceProxy;
+	private int value;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		staticMethod = Target.class.getMethod("twice", int.class);
+		instanceMethod = Target.class.getMethod("addOne", int.class);
+		target = new Target();
+
+		staticLambda = DefaultLanguageAdapter.createLambda(Target.class, staticMethod, null, IntUnaryOperator.class);
+		instanceLambda = DefaultLanguageAdapter.createLambda(Target.class, instanceMethod, target, IntUnaryOperator.class);
+		staticProxy = DefaultLanguageAdapter.createProxy(staticMethod, null, IntUnaryOperator.class, Target.class.getClassLoader());
+		instanceProxy = DefaultLanguageAdapter.createProxy(instanceMethod, target, IntUnaryOperator.class, Target.class.getClassLoader());
+
+		if (staticLambda == null || instanceLambda == null) {
+			throw new IllegalStateException("LambdaMetafactory is unavailable");
+		}
+	}
+
+	@Benchmark
+	public int invokeStaticLambda() {
+		return staticLambda.applyAsInt(value++);
+	}
+
+	@Benchmark
+	public int invokeStaticProxy() {
+		return staticProxy.applyAsInt(value++);
+	}
+
+	@Benchmark
+	public int invokeInstanceLambda() {
+		return instanceLambda.applyAsInt(value++);
+	}
+
+	@Benchmark
+	public int invokeInstanceProxy() {
+		return instanceProxy.applyAsInt(value++);
+	}
+
+	@Benchmark
+	public IntUnaryOperator createLambda() {
+		return DefaultLanguageAdapter.createLambda(Target.class, staticMethod, null, IntUnaryOperator.class);
+	}
+
+	@Benchmark
+	public IntUnaryOperator createProxy() {
+		return DefaultLanguageAdapter.createProxy(staticMethod, null, IntUnaryOperator.class, Target.class.getClassLoader());
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader;
+
+import net.fabricmc.loader.api.EntrypointException;
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Creates and runs the entrypoints of one key, moving those of mods which declared
+ * themselves parallel-safe onto a worker pool.
+ *
+ * <p>Entrypoints are grouped per mod. A mod's group only starts once the groups of
+ * all mods it depends on have finished, whichever thread those ran on. Groups of
+ * mods which are not parallel-safe run on the calling thread, in order.</p>
+ *
+ * <p>All entrypoints are created before any is invoked, so their creation can run on the
+ * pool too, and nothing is invoked if one of them can't be created.</p>
+ */
+final class EntrypointScheduler {
+	private static final boolean DISABLED = Boolean.getBoolean("fabric.loader.disableParallelInit");
+
+	private static final class Task {
+		final ModContainer mod;
+		final boolean parallel;
+		final List<EntrypointStorage.Entry> entries = new ArrayList<>();
+		final List<Object> instances = new ArrayList<>();
+		final Set<Task> dependencies = new LinkedHashSet<>();
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		Task(ModContainer mod) {
+			this.mod = mod;
+			this.parallel = mod.getInfo().isParallelInitSafe();
+		}
+	}
+
+	private EntrypointScheduler() {
+
+	}
+
+	/**
+	 * @return false if no entrypoint may run off the calling thread; nothing was invoked then.
+	 */
+	static <T> boolean invoke(String key, Class<T> type, Consumer<? super T> invoker, List<EntrypointStorage.Entry> entries, Map<String, ModContainer> modMap) {
+		if (DISABLED) {
+			return false;
+		}
+
+		Map<ModContainer, Task> tasks = new LinkedHashMap<>();
+
+		for (EntrypointStorage.Entry entry : entries) {
+			tasks.computeIfAbsent(entry.getModContainer(), Task::new).entries.add(entry);
+		}
+
+		int parallelCount = (int) tasks.values().stream().filter((t) -> t.parallel).count();
+		if (parallelCount == 0) {
+			return false;
+		}
+
+		for (Task task : tasks.values()) {
+			addDependencies(task, task.mod, tasks, modMap, new HashSet<>());
+		}
+
+		List<Task> order = sort(tasks.values());
+		if (order == null) {
+			FabricLoader.INSTANCE.getLogger().warn("Circular dependencies between mods providing '" + key + "' entrypoints, running them sequentially");
+			return false;
+		}
+
+		int threadCount = Math.min(Runtime.getRuntime().availableProcessors(), parallelCount);
+		FabricLoader.INSTANCE.getLogger().debug("Iterating over entrypoint '" + key + "' (" + parallelCount + " of " + tasks.size() + " mods on " + threadCount + " worker threads)");
+
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		AtomicInteger threadId = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, (r) -> {
+			Thread thread = new Thread(r, "Fabric Entrypoint Worker #" + threadId.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setContextClassLoader(contextClassLoader);
+			return thread;
+		});
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+		try {
+			// creation doesn't run initializers, so it doesn't need to wait for dependencies
+			List<CompletableFuture<Void>> creations = new ArrayList<>();
+
+			for (Task task : order) {
+				if (task.parallel) {
+					creations.add(CompletableFuture.runAsync(() -> create(task, key, type, errors), executor));
+				}
+			}
+
+			for (Task task : order) {
+				if (!task.parallel) {
+					create(task, key, type, errors);
+				}
+			}
+
+			CompletableFuture.allOf(creations.toArray(new CompletableFuture[0])).join();
+
+			if (!errors.isEmpty()) {
+				EntrypointException exception = new EntrypointException("Could not look up entries for entrypoint " + key + "!");
+
+				for (Throwable t : errors) {
+					exception.addSuppressed(t);
+				}
+
+				throw exception;
+			}
+
+			for (Task task : order) {
+				if (task.parallel) {
+					getDependencyFuture(task).whenComplete((v, t) -> executor.execute(() -> run(task, type, invoker, errors)));
+				}
+			}
+
+			// the order is topological, so everything a task waits for here is either
+			// done already or running on the pool
+			for (Task task : order) {
+				if (!task.parallel) {
+					getDependencyFuture(task).join();
+					run(task, type, invoker, errors);
+				}
+			}
+
+			for (Task task : order) {
+				task.future.join();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		if (!errors.isEmpty()) {
+			RuntimeException exception = new RuntimeException("Could not execute entrypoint stage '" + key + "' due to errors!");
+
+			for (Throwable t : errors) {
+				exception.addSuppressed(t);
+			}
+
+			throw exception;
+		}
+
+		return true;
+	}
+
+	private static CompletableFuture<Void> getDependencyFuture(Task task) {
+		return CompletableFuture.allOf(task.dependencies.stream().map((t) -> t.future).toArray(CompletableFuture[]::new));
+	}
+
+	private static <T> void create(Task task, String key, Class<T> type, List<Throwable> errors) {
+		for (EntrypointStorage.Entry entry : task.entries) {
+			try {
+				T instance = entry.getOrCreate(type);
+
+				if (instance != null) {
+					task.instances.add(instance);
+				}
+			} catch (Throwable t) {
+				FabricLoader.INSTANCE.getLogger().error("Exception occured while getting '" + key + "' entrypoints @ " + entry, t);
+				errors.add(t);
+			}
+		}
+	}
+
+	private static <T> void run(Task task, Class<T> type, Consumer<? super T> invoker, List<Throwable> errors) {
+		try {
+			for (Object instance : task.instances) {
+				try {
+					invoker.accept(type.cast(instance));
+				} catch (Throwable t) {
+					errors.add(t);
+				}
+			}
+		} finally {
+			// dependents run even if this failed, just like they would sequentially
+			task.future.complete(null);
+		}
+	}
+
+	/**
+	 * Adds the tasks of all mods the given mod depends on, looking through mods which
+	 * don't provide entrypoints for this key.
+	 */
+	private static void addDependencies(Task task, ModContainer mod, Map<ModContainer, Task> tasks, Map<String, ModContainer> modMap, Set<ModContainer> visited) {
+		for (ModDependency dependency : mod.getInfo().getDepends()) {
+			ModContainer depMod = modMap.get(dependency.getModId());
+
+			if (depMod == null || depMod == task.mod || !visited.add(depMod)) {
+				continue;
+			}
+
+			Task depTask = tasks.get(depMod);
+
+			if (depTask != null) {
+				task.dependencies.add(depTask);
+			} else {
+				addDependencies(task, depMod, tasks, modMap, visited);
+			}
+		}
+	}
+
+	/**
+	 * @return The tasks in a topological order which keeps the original order where possible, or null on cycles.
+	 */
+	private static List<Task> sort(Collection<Task> tasks) {
+		List<Task> remaining = new ArrayList<>(tasks);
+		Set<Task> placed = new HashSet<>();
+		List<Task> ret = new ArrayList<>(tasks.size());
+
+		while (!remaining.isEmpty()) {
+			boolean progress = false;
+
+			for (Iterator<Task> it = remaining.iterator(); it.hasNext(); ) {
+				Task task = it.next();
+
+				if (placed.containsAll(task.dependencies)) {
+					ret.add(task);
+					placed.add(task);
+					it.remove();
+					progress = true;
+					break;
+				}
+			}
+
+			if (!progress) {
+				return null;
+			}
+		}
+
+		return ret;
+	}
+}
@@ -18,6 +18,7 @@ package net.fabricmc.loader;
 
 import net.fabricmc.loader.FabricLoader;
 import net.fabricmc.loader.ModContainer;
+import net.fabricmc.loader.api.EntrypointContainer;
 import net.fabricmc.loader.api.EntrypointException;
 import net.fabricmc.loader.api.LanguageAdapter;
 import net.fabricmc.loader.api.LanguageAdapterException;
@@ -25,11 +26,55 @@ import net.fabricmc.loader.launch.common.FabricLauncherBase;
 import net.fabricmc.loader.metadata.EntrypointMetadata;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 class EntrypointStorage {
 	static interface Entry {
 		<T> T getOrCreate(Class<T> type) throws Exception;
+		ModContainer getModContainer();
+
+		/**
+		 * @return true if the entry may turn out not to match the requested type, which
+		 * is only known once it has been created.
+		 */
+		default boolean isOptional() {
+			return false;
+		}
+	}
+
+	private static final class Container<T> implements EntrypointContainer<T> {
+		private final String key;
+		private final Class<T> type;
+		private final Entry entry;
+
+		private Container(String key, Class<T> type, Entry entry) {
+			this.key = key;
+			this.type = type;
+			this.entry = entry;
+		}
+
+		@Override
+		public T getEntrypoint() {
+			try {
+				return entry.getOrCreate(type);
+			} catch (Exception e) {
+				throw new EntrypointException("Exception while loading entries for entrypoint '" + key + "' provided by '" + entry.getModContainer().getInfo().getId() + "'", e);
+			}
+		}
+
+		@Override
+		public ModContainer getProvider() {
+			return entry.getModContainer();
+		}
+
+		@Override
+		public String toString() {
+			return entry.toString();
+		}
 	}
 
 	private static class OldEntry implements Entry {
@@ -40,7 +85,7 @@ class EntrypointStorage {
 		private final ModContainer mod;
 		private final String languageAdapter;
 		private final String value;
-		private Object object;
+		private volatile Object object;
 
 		private OldEntry(ModContainer mod, String languageAdapter, String value) {
 			this.mod = mod;
@@ -53,11 +98,29 @@ class EntrypointStorage {
 			return mod.getInfo().getId() + "->" + value;
 		}
 
+		@Override
+		public ModContainer getModContainer() {
+			return mod;
+		}
+
+		@Override
+		public boolean isOptional() {
+			return true;
+		}
+
 		@Override
 		public <T> T getOrCreate(Class<T> type) throws Exception {
+			Object object = this.object;
+
 			if (object == null) {
-				net.fabricmc.loader.language.LanguageAdapter adapter = (net.fabricmc.loader.language.LanguageAdapter) Class.forName(languageAdapter, true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getConstructor().newInstance();
-				object = adapter.createInstance(value, options);
+				synchronized (this) {
+					object = this.object;
+
+					if (object == null) {
+						net.fabricmc.loader.language.LanguageAdapter adapter = (net.fabricmc.loader.language.LanguageAdapter) Class.forName(languageAdapter, true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getConstructor().newInstance();
+						this.object = object = adapter.createInstance(value, options);
+					}
+				}
 			}
 
 			if (object == null || !type.isAssignableFrom(object.getClass())) {
@@ -73,7 +136,7 @@ class EntrypointStorage {
 		private final ModContainer mod;
 		private final LanguageAdapter adapter;
 		private final String value;
-		private final Map<Class<?>, Object> instanceMap = new IdentityHashMap<>();
+		private final Map<Class<?>, Object> instanceMap = new ConcurrentHashMap<>();
 
 		private NewEntry(ModContainer mod, LanguageAdapter adapter, String value) {
 			this.mod = mod;
@@ -86,13 +149,30 @@ class EntrypointStorage {
 			return mod.getInfo().getId() + "->(0.3.x)" + value;
 		}
 
+		@Override
+		public ModContainer getModContainer() {
+			return mod;
+		}
+
 		@Override
 		public <T> T getOrCreate(Class<T> type) throws Exception {
 			Object o = instanceMap.get(type);
+
 			if (o == null) {
-				o = create(type);
-				instanceMap.put(type, o);
+				// creation runs mod code, so make sure it happens only once per type
+				synchronized (this) {
+					o = instanceMap.get(type);
+
+					if (o == null) {
+						o = create(type);
+
+						if (o != null) {
+							instanceMap.put(type, o);
+						}
+					}
+				}
 			}
+
 			//noinspection unchecked
 			return (T) o;
 		}
@@ -102,18 +182,45 @@ class EntrypointStorage {
 		}
 	}
 
-	private final Map<String, List<Entry>> entryMap = new HashMap<>();
+	/**
+	 * A cached result or container list, along with the {@link #version} of the entries it was computed from.
+	 */
+	private static final class CachedList {
+		final long version;
+		final List<?> list;
+
+		CachedList(long version, List<?> list) {
+			this.version = version;
+			this.list = list;
+		}
+	}
+
+	private final Map<String, List<Entry>> entryMap = new ConcurrentHashMap<>();
+	/**
+	 * Incremented after every added entry, so results computed from the entries before
+	 * that are never served again, whenever they made it into a cache.
+	 */
+	private final AtomicLong version = new AtomicLong();
+	/**
+	 * key -> type -> immutable result list of {@link #getEntrypoints}.
+	 */
+	private final Map<String, ConcurrentMap<Class<?>, CachedList>> resultCache = new ConcurrentHashMap<>();
+	/**
+	 * key -> type -> immutable container list of {@link #getEntrypointContainers}.
+	 */
+	private final Map<String, ConcurrentMap<Class<?>, CachedList>> containerCache = new ConcurrentHashMap<>();
 
-	private List<Entry> getOrCreateEntries(String key) {
-		return entryMap.computeIfAbsent(key, (z) -> new ArrayList<>());
+	private void addEntry(String key, Entry entry) {
+		entryMap.computeIfAbsent(key, (z) -> new CopyOnWriteArrayList<>()).add(entry);
+		version.incrementAndGet();
 	}
 
 	protected void addDeprecated(ModContainer modContainer, String adapter, String value) throws ClassNotFoundException, LanguageAdapterException {
 		FabricLoader.INSTANCE.getLogger().debug("Registering 0.3.x old-style initializer " + value + " for mod " + modContainer.getInfo().getId());
 		OldEntry oe = new OldEntry(modContainer, adapter, value);
-		getOrCreateEntries("main").add(oe);
-		getOrCreateEntries("client").add(oe);
-		getOrCreateEntries("server").add(oe);
+		addEntry("main", oe);
+		addEntry("client", oe);
+		addEntry("server", oe);
 	}
 
 	protected void add(ModContainer modContainer, String key, EntrypointMetadata metadata, Map<String, LanguageAdapter> adapterMap) throws Exception {
@@ -122,12 +229,35 @@ class EntrypointStorage {
 		}
 
 		FabricLoader.INSTANCE.getLogger().debug("Registering new-style initializer " + metadata.getValue() + " for mod " + modContainer.getInfo().getId() + " (key " + key + ")");
-		getOrCreateEntries(key).add(new NewEntry(
+		addEntry(key, new NewEntry(
 			modContainer, adapterMap.get(metadata.getAdapter()), metadata.getValue()
 		));
 	}
 
+	protected List<Entry> getEntries(String key) {
+		List<Entry> entries = entryMap.get(key);
+		return entries != null ? Collections.unmodifiableList(entries) : Collections.emptyList();
+	}
+
+	/**
+	 * Repeated calls with the same key and type return the same list without allocating,
+	 * until another entry is added.
+	 *
+	 * @return An immutable list, which is shared between calls with the same key and type.
+	 */
 	protected <T> List<T> getEntrypoints(String key, Class<T> type) {
+		long version = this.version.get();
+		Map<Class<?>, CachedList> cache = resultCache.get(key);
+
+		if (cache != null) {
+			CachedList cached = cache.get(type);
+
+			if (cached != null && cached.version == version) {
+				//noinspection unchecked
+				return (List<T>) cached.list;
+			}
+		}
+
 		List<Entry> entries = entryMap.get(key);
 		if (entries == null) {
 			return Collections.emptyList();
@@ -149,8 +279,51 @@ class EntrypointStorage {
 
 		if (hadException) {
 			throw new EntrypointException("Could not look up entries for entrypoint " + key + "!");
-		} else {
-			return results;
 		}
+
+		List<T> ret = Collections.unmodifiableList(results);
+		resultCache.computeIfAbsent(key, (k) -> new ConcurrentHashMap<>()).put(type, new CachedList(version, ret));
+		return ret;
+	}
+
+	/**
+	 * Entrypoints are only created once their handle is asked for them, except for
+	 * old-style ones, which have to be created to know whether they match the type.
+	 *
+	 * @return An immutable list, which is shared between calls with the same key and type.
+	 */
+	protected <T> List<EntrypointContainer<T>> getEntrypointContainers(String key, Class<T> type) {
+		long version = this.version.get();
+		Map<Class<?>, CachedList> cache = containerCache.get(key);
+
+		if (cache != null) {
+			CachedList cached = cache.get(type);
+
+			if (cached != null && cached.version == version) {
+				//noinspection unchecked
+				return (List<EntrypointContainer<T>>) cached.list;
+			}
+		}
+
+		List<Entry> entries = entryMap.get(key);
+		if (entries == null) {
+			return Collections.emptyList();
+		}
+
+		List<EntrypointContainer<T>> results = new ArrayList<>(entries.size());
+
+		for (Entry entry : entries) {
+			Container<T> container = new Container<>(key, type, entry);
+
+			if (entry.isOptional() && container.getEntrypoint() == null) {
+				continue;
+			}
+
+			results.add(container);
+		}
+
+		List<EntrypointContainer<T>> ret = Collections.unmodifiableList(results);
+		containerCache.computeIfAbsent(key, (k) -> new ConcurrentHashMap<>()).put(type, new CachedList(version, ret));
+		return ret;
 	}
 }
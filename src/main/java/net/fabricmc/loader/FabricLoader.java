@@ -17,9 +17,11 @@
 package net.fabricmc.loader;
 
 import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.EntrypointContainer;
 import net.fabricmc.loader.api.LanguageAdapter;
 import net.fabricmc.loader.api.MappingResolver;
 import net.fabricmc.loader.api.SemanticVersion;
+import net.fabricmc.loader.api.metadata.ModDependency;
 import net.fabricmc.loader.discovery.*;
 import net.fabricmc.loader.launch.common.FabricLauncher;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
@@ -34,6 +36,7 @@ import java.io.*;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -76,6 +79,7 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 		}
 
 		frozen = true;
+		sortMods();
 		finishModLoading();
 	}
 
@@ -147,8 +151,19 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 			throw new RuntimeException("Failed to resolve mods!", e);
 		}
 
+		load(candidateMap.values());
+	}
+
+	/**
+	 * Loads the given mods as they are, without discovering or resolving anything.
+	 */
+	public void load(Collection<ModCandidate> candidates) {
+		if (frozen) {
+			throw new RuntimeException("Frozen - cannot load additional mods!");
+		}
+
 		String modText;
-		switch (candidateMap.values().size()) {
+		switch (candidates.size()) {
 			case 0:
 				modText = "Loading %d mods";
 				break;
@@ -160,11 +175,11 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 				break;
 		}
 
-		LOGGER.info("[" + getClass().getSimpleName() + "] " + modText, candidateMap.values().size(), candidateMap.values().stream()
+		LOGGER.info("[" + getClass().getSimpleName() + "] " + modText, candidates.size(), candidates.stream()
 			.map(info -> String.format("%s@%s", info.getInfo().getId(), info.getInfo().getVersion().getFriendlyString()))
 			.collect(Collectors.joining(", ")));
 
-		for (ModCandidate candidate : candidateMap.values()) {
+		for (ModCandidate candidate : candidates) {
 			addMod(candidate);
 		}
 	}
@@ -172,8 +187,12 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 	protected void finishModLoading() {
 		// add mods to classpath
 		// TODO: This can probably be made safer, but that's a long-term goal
+		// mods sharing the loader's origin, such as the unbaked mods of a baked launch, come with the loader itself
+		ModContainer loaderMod = modMap.get("fabricloader");
+		String loaderOrigin = loaderMod != null ? loaderMod.getOriginUrl().toString() : null;
+
 		for (ModContainer mod : mods) {
-			if (!mod.getInfo().getId().equals("fabricloader")) {
+			if (!mod.getInfo().getId().equals("fabricloader") && !mod.getOriginUrl().toString().equals(loaderOrigin)) {
 				FabricLauncherBase.getLauncher().propose(mod.getOriginUrl());
 			}
 		}
@@ -186,6 +205,21 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 		return entrypointStorage.getEntrypoints(key, type);
 	}
 
+	@Override
+	public <T> List<EntrypointContainer<T>> getEntrypointContainers(String key, Class<T> type) {
+		return entrypointStorage.getEntrypointContainers(key, type);
+	}
+
+	/**
+	 * Creates and invokes the entrypoints of a key, running those of mods which declared
+	 * themselves parallel-safe on a worker pool in dependency order.
+	 *
+	 * @return false if no entrypoint may run in parallel, in which case nothing was invoked.
+	 */
+	public <T> boolean invokeEntrypointsInParallel(String key, Class<T> type, Consumer<? super T> invoker) {
+		return EntrypointScheduler.invoke(key, type, invoker, entrypointStorage.getEntries(key), modMap);
+	}
+
 	@Override
 	public MappingResolver getMappingResolver() {
 		if (mappingResolver == null) {
@@ -259,37 +293,96 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 		}
 	}
 
-	/* private void sortMods() {
+	/**
+	 * Sorts the mod list so that every mod comes after the mods it depends on or
+	 * recommends. Ties, and mods caught in dependency cycles, are ordered by mod ID,
+	 * so the result doesn't depend on discovery order.
+	 */
+	void sortMods() {
 		LOGGER.debug("Sorting mods");
 
-		LinkedList<ModContainer> sorted = new LinkedList<>();
+		Map<ModContainer, Set<ModContainer>> dependencies = new HashMap<>();
+		Map<ModContainer, List<ModContainer>> dependents = new HashMap<>();
+
 		for (ModContainer mod : mods) {
-			if (sorted.isEmpty() || mod.getInfo().getRequires().size() == 0) {
-				sorted.addFirst(mod);
-			} else {
-				boolean b = false;
-				l1:
-				for (int i = 0; i < sorted.size(); i++) {
-					for (Map.Entry<String, ModMetadataV0.Dependency> entry : sorted.get(i).getInfo().getRequires().entrySet()) {
-						String depId = entry.getKey();
-						ModMetadataV0.Dependency dep = entry.getValue();
-
-						if (depId.equalsIgnoreCase(mod.getInfo().getId()) && dep.satisfiedBy(mod.getInfo())) {
-							sorted.add(i, mod);
-							b = true;
-							break l1;
-						}
-					}
-				}
+			Set<ModContainer> deps = new HashSet<>();
+
+			for (ModDependency dep : mod.getInfo().getDepends()) {
+				addSortDependency(mod, dep, deps, dependents);
+			}
+
+			for (ModDependency dep : mod.getInfo().getRecommends()) {
+				addSortDependency(mod, dep, deps, dependents);
+			}
+
+			dependencies.put(mod, deps);
+		}
+
+		Comparator<ModContainer> idComparator = Comparator.comparing((m) -> m.getInfo().getId());
+		PriorityQueue<ModContainer> ready = new PriorityQueue<>(idComparator);
+		TreeSet<ModContainer> remaining = new TreeSet<>(idComparator);
+		remaining.addAll(mods);
+
+		for (ModContainer mod : mods) {
+			if (dependencies.get(mod).isEmpty()) {
+				ready.add(mod);
+			}
+		}
+
+		List<ModContainer> sorted = new ArrayList<>(mods.size());
+
+		while (!remaining.isEmpty()) {
+			ModContainer mod = ready.poll();
+
+			if (mod == null) {
+				// cycle: break it at the lowest remaining mod ID which is part of one,
+				// so mods merely depending on a cycle still come after it
+				mod = remaining.stream().filter((m) -> isOnCycle(m, dependencies)).findFirst().orElse(remaining.first());
+				LOGGER.debug("Breaking dependency cycle at mod " + mod.getInfo().getId());
+			}
+
+			if (!remaining.remove(mod)) {
+				continue;
+			}
+
+			sorted.add(mod);
+
+			for (ModContainer dependent : dependents.getOrDefault(mod, Collections.emptyList())) {
+				Set<ModContainer> deps = dependencies.get(dependent);
 
-				if (!b) {
-					sorted.addLast(mod);
+				if (deps.remove(mod) && deps.isEmpty() && remaining.contains(dependent)) {
+					ready.add(dependent);
 				}
 			}
 		}
 
 		mods = sorted;
-	} */
+	}
+
+	private static boolean isOnCycle(ModContainer mod, Map<ModContainer, Set<ModContainer>> dependencies) {
+		Set<ModContainer> visited = new HashSet<>();
+		Deque<ModContainer> queue = new ArrayDeque<>(dependencies.get(mod));
+
+		while (!queue.isEmpty()) {
+			ModContainer dep = queue.poll();
+
+			if (dep == mod) {
+				return true;
+			} else if (visited.add(dep)) {
+				queue.addAll(dependencies.get(dep));
+			}
+		}
+
+		return false;
+	}
+
+	private void addSortDependency(ModContainer mod, ModDependency dep, Set<ModContainer> deps, Map<ModContainer, List<ModContainer>> dependents) {
+		ModContainer depMod = modMap.get(dep.getModId());
+
+		if (depMod != null && depMod != mod && deps.add(depMod)) {
+			dependents.computeIfAbsent(depMod, (m) -> new ArrayList<>()).add(mod);
+		}
+	}
 
 	public void instantiateMods(File newRunDir, Object gameInstance) {
 		if (!frozen) {
@@ -347,14 +440,13 @@ public class FabricLoader implements net.fabricmc.loader.api.FabricLoader {
 			// add language adapters
 			for (Map.Entry<String, String> laEntry : mod.getInfo().getLanguageAdapterDefinitions().entrySet()) {
 				if (adapterMap.containsKey(laEntry.getKey())) {
-					throw new RuntimeException("Duplicate language adapter key: " + laEntry.getKey() + "! (" + laEntry.getValue() + ", " + adapterMap.get(laEntry.getKey()).getClass().getName() + ")");
+					LanguageAdapter existing = adapterMap.get(laEntry.getKey());
+					String existingName = existing instanceof LazyLanguageAdapter ? ((LazyLanguageAdapter) existing).getClassName() : existing.getClass().getName();
+					throw new RuntimeException("Duplicate language adapter key: " + laEntry.getKey() + "! (" + laEntry.getValue() + ", " + existingName + ")");
 				}
 
-				try {
-					adapterMap.put(laEntry.getKey(), (LanguageAdapter) Class.forName(laEntry.getValue(), true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getDeclaredConstructor().newInstance());
-				} catch (Exception e) {
-					throw new RuntimeException("Failed to instantiate language adapter: " + laEntry.getKey(), e);
-				}
+				// loaded on first use, so adapters for entrypoints which are never queried stay untouched
+				adapterMap.put(laEntry.getKey(), new LazyLanguageAdapter(laEntry.getKey(), laEntry.getValue()));
 			}
 		}
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader;
+
+import net.fabricmc.loader.api.LanguageAdapter;
+import net.fabricmc.loader.api.LanguageAdapterException;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
+
+/**
+ * A language adapter declared by a mod, which is only loaded and instantiated when
+ * the first entrypoint using it gets created.
+ */
+final class LazyLanguageAdapter implements LanguageAdapter {
+	private final String key;
+	private final String className;
+	private volatile LanguageAdapter adapter;
+
+	LazyLanguageAdapter(String key, String className) {
+		this.key = key;
+		this.className = className;
+	}
+
+	@Override
+	public <T> T create(ModContainer mod, String value, Class<T> type) throws LanguageAdapterException {
+		return getAdapter().create(mod, value, type);
+	}
+
+	private LanguageAdapter getAdapter() throws LanguageAdapterException {
+		LanguageAdapter adapter = this.adapter;
+
+		if (adapter == null) {
+			synchronized (this) {
+				adapter = this.adapter;
+
+				if (adapter == null) {
+					try {
+						this.adapter = adapter = (LanguageAdapter) Class.forName(className, true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getDeclaredConstructor().newInstance();
+					} catch (Exception e) {
+						throw new LanguageAdapterException("Failed to instantiate language adapter: " + key, e);
+					}
+				}
+			}
+		}
+
+		return adapter;
+	}
+
+	String getClassName() {
+		return className;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.api;
+
+/**
+ * A handle to an entrypoint of a mod, which only loads and instantiates the
+ * entrypoint's class once {@link #getEntrypoint()} is called.
+ *
+ * @param <T> The type of the entrypoint.
+ * @see FabricLoader#getEntrypointContainers(String, Class)
+ */
+public interface EntrypointContainer<T> {
+	/**
+	 * Get the entrypoint instance, creating it on the first call.
+	 *
+	 * @return The entrypoint instance.
+	 * @throws EntrypointException if the entrypoint could not be created.
+	 */
+	T getEntrypoint();
+
+	/**
+	 * @return The mod which provides this entrypoint.
+	 */
+	ModContainer getProvider();
+}
@@ -37,8 +37,25 @@ public interface FabricLoader {
 		return net.fabricmc.loader.FabricLoader.INSTANCE;
 	}
 
+	/**
+	 * Get the entrypoints of a key, creating them on the first call.
+	 *
+	 * @param key The entrypoint key.
+	 * @param type The type of the entrypoints.
+	 * @return An immutable list, which may be shared between calls with the same key and type.
+	 */
 	<T> List<T> getEntrypoints(String key, Class<T> type);
 
+	/**
+	 * Get handles to the entrypoints of a key without loading their classes, which
+	 * only happens once {@link EntrypointContainer#getEntrypoint()} is called.
+	 *
+	 * @param key The entrypoint key.
+	 * @param type The type of the entrypoints.
+	 * @return An immutable list of entrypoint handles.
+	 */
+	<T> List<EntrypointContainer<T>> getEntrypointContainers(String key, Class<T> type);
+
 	/**
 	 * Get the current mapping resolver.
 	 * @return The current mapping resolver instance.
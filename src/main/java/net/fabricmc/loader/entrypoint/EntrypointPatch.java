@@ -17,6 +17,8 @@
 package net.fabricmc.loader.entrypoint;
 
 import net.fabricmc.loader.launch.common.FabricLauncher;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
@@ -28,6 +30,71 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public abstract class EntrypointPatch {
+	/**
+	 * Streaming search for a method call in the first method of a class accepted by a
+	 * filter. The code of all other methods is skipped without being parsed.
+	 */
+	protected static final class MethodInsnMatcher extends ClassVisitor {
+		private final Predicate<MethodNode> methodFilter;
+		private final Predicate<MethodInsnNode> insnPredicate;
+		private final boolean last;
+		private MethodNode method;
+		private MethodInsnNode match;
+
+		/**
+		 * @param methodFilter Filter on the method, which only has its header set when tested.
+		 * @param insnPredicate Predicate on the method call instructions of the method.
+		 * @param last Whether to match the last instead of the first instruction.
+		 */
+		public MethodInsnMatcher(Predicate<MethodNode> methodFilter, Predicate<MethodInsnNode> insnPredicate, boolean last) {
+			super(Opcodes.ASM7);
+			this.methodFilter = methodFilter;
+			this.insnPredicate = insnPredicate;
+			this.last = last;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			if (method != null) {
+				return null;
+			}
+
+			MethodNode header = new MethodNode(access, name, descriptor, signature, exceptions);
+			if (!methodFilter.test(header)) {
+				return null;
+			}
+
+			method = header;
+
+			return new MethodVisitor(Opcodes.ASM7) {
+				@Override
+				public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+					if (match == null || last) {
+						MethodInsnNode insn = new MethodInsnNode(opcode, owner, name, descriptor, isInterface);
+
+						if (insnPredicate.test(insn)) {
+							match = insn;
+						}
+					}
+				}
+			};
+		}
+
+		/**
+		 * @return The header of the method which was searched, or null if no method matched the filter.
+		 */
+		public MethodNode getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return The matching instruction, or null.
+		 */
+		public MethodInsnNode getMatch() {
+			return match;
+		}
+	}
+
 	private final EntrypointTransformer transformer;
 
 	public EntrypointPatch(EntrypointTransformer transformer) {
@@ -54,6 +121,25 @@ public abstract class EntrypointPatch {
 		return transformer.loadClass(launcher, className);
 	}
 
+	/**
+	 * Load a class with code for only the methods accepted by the filter, which sees only
+	 * the method header. Methods which are not accepted are left out of the tree, but are
+	 * kept unchanged if the class is emitted.
+	 */
+	protected ClassNode loadClass(FabricLauncher launcher, String className, Predicate<MethodNode> codeFilter) throws IOException {
+		return transformer.loadClass(launcher, className, codeFilter);
+	}
+
+	/**
+	 * Pass a class through a visitor without building a tree of it, skipping debug
+	 * information and frames.
+	 *
+	 * @return false if the class does not exist.
+	 */
+	protected boolean scanClass(FabricLauncher launcher, String className, ClassVisitor visitor) throws IOException {
+		return transformer.scanClass(launcher, className, visitor);
+	}
+
 	protected FieldNode findField(ClassNode node, Predicate<FieldNode> predicate) {
 		return node.fields.stream().filter(predicate).findAny().orElse(null);
 	}
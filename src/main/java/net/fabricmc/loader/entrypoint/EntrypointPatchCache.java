@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.entrypoint;
+
+import net.fabricmc.loader.launch.common.FabricLauncher;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.util.HashUtil;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk copy of the classes produced by the entrypoint patches, so they only have
+ * to run again when the game JARs, the mappings or the loader change.
+ */
+final class EntrypointPatchCache {
+	private static final int FORMAT_VERSION = 1;
+
+	final Map<String, byte[]> patchedClasses;
+	final String appletMainClass;
+
+	EntrypointPatchCache(Map<String, byte[]> patchedClasses, String appletMainClass) {
+		this.patchedClasses = patchedClasses;
+		this.appletMainClass = appletMainClass;
+	}
+
+	static String getKey(FabricLauncher launcher, List<EntrypointPatch> patches, List<Path> gameJars) throws IOException {
+		MessageDigest digest = HashUtil.newDigest();
+		HashUtil.update(digest, Integer.toString(FORMAT_VERSION));
+		HashUtil.update(digest, FabricLauncherBase.getLoaderVersion());
+		// the game JARs are hashed before remapping, so the remapper affects the patched classes
+		HashUtil.update(digest, FabricLauncherBase.getCodeVersion(TinyRemapper.class));
+		HashUtil.update(digest, launcher.getEnvironmentType().name());
+		HashUtil.update(digest, launcher.getEntrypoint());
+		HashUtil.update(digest, launcher.getTargetNamespace());
+		// in development the game is not remapped, so the mappings don't affect it
+		HashUtil.update(digest, launcher.isDevelopment() ? "" : launcher.getMappingConfiguration().getMappingsHash());
+
+		for (EntrypointPatch patch : patches) {
+			HashUtil.update(digest, patch.getClass().getName());
+		}
+
+		for (Path jar : gameJars) {
+			HashUtil.update(digest, FabricLauncherBase.getFileHash(jar));
+		}
+
+		return HashUtil.toHex(digest.digest());
+	}
+
+	/**
+	 * @return The cached patch results, or null if there are none for this key.
+	 */
+	static EntrypointPatchCache read(Path file, String key) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (stream.readInt() != FORMAT_VERSION || !stream.readUTF().equals(key)) {
+				return null;
+			}
+
+			String appletMainClass = stream.readBoolean() ? stream.readUTF() : null;
+			int count = stream.readInt();
+			Map<String, byte[]> patchedClasses = new HashMap<>(count * 2);
+
+			for (int i = 0; i < count; i++) {
+				String name = stream.readUTF();
+				byte[] data = new byte[stream.readInt()];
+				stream.readFully(data);
+				patchedClasses.put(name, data);
+			}
+
+			return new EntrypointPatchCache(patchedClasses, appletMainClass);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	void write(Path file, String key) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+			stream.writeInt(FORMAT_VERSION);
+			stream.writeUTF(key);
+			stream.writeBoolean(appletMainClass != null);
+
+			if (appletMainClass != null) {
+				stream.writeUTF(appletMainClass);
+			}
+
+			stream.writeInt(patchedClasses.size());
+
+			for (Map.Entry<String, byte[]> entry : patchedClasses.entrySet()) {
+				stream.writeUTF(entry.getKey());
+				stream.writeInt(entry.getValue().length);
+				stream.write(entry.getValue());
+			}
+		}
+
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -18,17 +18,22 @@ package net.fabricmc.loader.entrypoint;
 
 import com.google.common.collect.ImmutableList;
 import net.fabricmc.loader.launch.common.FabricLauncher;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class EntrypointTransformer {
 
@@ -43,8 +48,12 @@ public class EntrypointTransformer {
 		this.patches = ImmutableList.copyOf(patches.apply(this));
 	}
 
+	private byte[] getClassBytes(FabricLauncher launcher, String className) throws IOException {
+		return patchedClasses.containsKey(className) ? patchedClasses.get(className) : launcher.getClassByteArray(className);
+	}
+
 	ClassNode loadClass(FabricLauncher launcher, String className) throws IOException {
-		byte[] data = patchedClasses.containsKey(className) ? patchedClasses.get(className) : launcher.getClassByteArray(className);
+		byte[] data = getClassBytes(launcher, className);
 		if (data != null) {
 			ClassReader reader = new ClassReader(data);
 			ClassNode node = new ClassNode();
@@ -55,15 +64,34 @@ public class EntrypointTransformer {
 		}
 	}
 
+	ClassNode loadClass(FabricLauncher launcher, String className, Predicate<MethodNode> codeFilter) throws IOException {
+		byte[] data = getClassBytes(launcher, className);
+		return data != null ? new PartialClassNode(data, codeFilter) : null;
+	}
+
+	boolean scanClass(FabricLauncher launcher, String className, ClassVisitor visitor) throws IOException {
+		byte[] data = getClassBytes(launcher, className);
+		if (data != null) {
+			new ClassReader(data).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
 	private void addPatchedClass(ClassNode node) {
 		String key = node.name.replace('/', '.');
 		if (patchedClasses.containsKey(key)) {
 			throw new RuntimeException("Duplicate addPatchedClasses call: " + key);
 		}
 
-		ClassWriter writer = new ClassWriter(0);
-		node.accept(writer);
-		patchedClasses.put(key, writer.toByteArray());
+		if (node instanceof PartialClassNode) {
+			patchedClasses.put(key, ((PartialClassNode) node).toByteArray());
+		} else {
+			ClassWriter writer = new ClassWriter(0);
+			node.accept(writer);
+			patchedClasses.put(key, writer.toByteArray());
+		}
 	}
 
 	public void locateEntrypoints(FabricLauncher launcher) {
@@ -78,6 +106,53 @@ public class EntrypointTransformer {
 		logger.debug("[EntrypointTransformer] Patched " + (patchedClasses.size() == 1 ? "1 class." : (patchedClasses.size() + " classes.")));
 	}
 
+	/**
+	 * Like {@link #locateEntrypoints(FabricLauncher)}, but reuses the results of a previous
+	 * launch with the same game JARs, mappings and loader version from the given file.
+	 */
+	public void locateEntrypoints(FabricLauncher launcher, Path cacheFile, List<Path> gameJars) {
+		if (entrypointsLocated) {
+			return;
+		}
+
+		// a loader run from its class directory has no version to key the cache by
+		if (FabricLauncherBase.isLoaderFromDirectory()) {
+			locateEntrypoints(launcher);
+			return;
+		}
+
+		String key = null;
+
+		try {
+			key = EntrypointPatchCache.getKey(launcher, patches, gameJars);
+			EntrypointPatchCache cache = EntrypointPatchCache.read(cacheFile, key);
+
+			if (cache != null) {
+				entrypointsLocated = true;
+				patchedClasses = cache.patchedClasses;
+
+				if (cache.appletMainClass != null) {
+					appletMainClass = cache.appletMainClass;
+				}
+
+				logger.debug("[EntrypointTransformer] Loaded " + (patchedClasses.size() == 1 ? "1 patched class" : (patchedClasses.size() + " patched classes")) + " from cache.");
+				return;
+			}
+		} catch (IOException e) {
+			logger.warn("[EntrypointTransformer] Could not read entrypoint patch cache " + cacheFile, e);
+		}
+
+		locateEntrypoints(launcher);
+
+		if (key != null) {
+			try {
+				new EntrypointPatchCache(patchedClasses, appletMainClass).write(cacheFile, key);
+			} catch (IOException e) {
+				logger.warn("[EntrypointTransformer] Could not write entrypoint patch cache " + cacheFile, e);
+			}
+		}
+	}
+
 	/**
 	 * This must run first, contractually!
 	 * @param className The class name,
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.entrypoint;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.function.Predicate;
+
+/**
+ * A class tree holding only the methods accepted by a filter, the code of all other
+ * methods is skipped without being parsed. When written back, those methods are
+ * copied over from the original class unchanged.
+ *
+ * <p>Patches may only change the code of the methods present in the tree.</p>
+ */
+final class PartialClassNode extends ClassNode {
+	private final byte[] source;
+	private final Predicate<MethodNode> codeFilter;
+
+	PartialClassNode(byte[] source, Predicate<MethodNode> codeFilter) {
+		super(Opcodes.ASM7);
+		this.source = source;
+		this.codeFilter = codeFilter;
+
+		new ClassReader(source).accept(this, 0);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+		if (!codeFilter.test(new MethodNode(access, name, descriptor, signature, exceptions))) {
+			return null;
+		}
+
+		return super.visitMethod(access, name, descriptor, signature, exceptions);
+	}
+
+	byte[] toByteArray() {
+		ClassReader reader = new ClassReader(source);
+		ClassWriter writer = new ClassWriter(reader, 0);
+
+		reader.accept(new ClassVisitor(Opcodes.ASM7, writer) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				for (MethodNode method : methods) {
+					if (method.name.equals(name) && method.desc.equals(descriptor)) {
+						method.accept(cv);
+						return null;
+					}
+				}
+
+				return super.visitMethod(access, name, descriptor, signature, exceptions);
+			}
+		}, 0);
+
+		return writer.toByteArray();
+	}
+}
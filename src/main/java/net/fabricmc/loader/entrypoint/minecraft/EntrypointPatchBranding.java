@@ -42,7 +42,8 @@ public final class EntrypointPatchBranding extends EntrypointPatch {
 			"net.minecraft.server.MinecraftServer"
 		)) {
 			try {
-				ClassNode brandClass = loadClass(launcher, brandClassName);
+				// MinecraftServer is big, only materialize the methods to patch
+				ClassNode brandClass = loadClass(launcher, brandClassName, this::isBrandMethod);
 				if (brandClass != null) {
 					if (applyBrandingPatch(brandClass)) {
 						classEmitter.accept(brandClass);
@@ -59,7 +60,7 @@ public final class EntrypointPatchBranding extends EntrypointPatch {
 		boolean applied = false;
 
 		for (MethodNode node : classNode.methods) {
-			if (node.name.equals("getClientModName") || node.name.equals("getServerModName") && node.desc.endsWith(")Ljava/lang/String;")) {
+			if (isBrandMethod(node)) {
 				debug("Applying brand name hook to " + classNode.name + "::" + node.name);
 
 				ListIterator<AbstractInsnNode> it = node.instructions.iterator();
@@ -77,4 +78,8 @@ public final class EntrypointPatchBranding extends EntrypointPatch {
 
 		return applied;
 	}
+
+	private boolean isBrandMethod(MethodNode node) {
+		return node.name.equals("getClientModName") || node.name.equals("getServerModName") && node.desc.endsWith(")Ljava/lang/String;");
+	}
 }
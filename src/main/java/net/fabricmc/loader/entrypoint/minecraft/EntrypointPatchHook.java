@@ -20,6 +20,8 @@ import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.entrypoint.EntrypointPatch;
 import net.fabricmc.loader.entrypoint.EntrypointTransformer;
 import net.fabricmc.loader.launch.common.FabricLauncher;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
@@ -28,6 +30,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class EntrypointPatchHook extends EntrypointPatch {
 	public EntrypointPatchHook(EntrypointTransformer transformer) {
@@ -39,6 +42,72 @@ public class EntrypointPatchHook extends EntrypointPatch {
 		it.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "net/fabricmc/loader/entrypoint/minecraft/hooks/Entrypoint" + (type == EnvType.CLIENT ? "Client" : "Server"), "start", "(Ljava/io/File;Ljava/lang/Object;)V", false));
 	}
 
+	/**
+	 * Picks the method to hook in the game class in a streaming pass. Method code is only
+	 * looked at while searching for the LWJGL version log.
+	 */
+	private static final class GameMethodLocator extends ClassVisitor {
+		private final boolean searchLwjglLog;
+		private MethodNode gameMethod;
+		private MethodNode gameConstructor;
+		private int gameMethodQuality;
+
+		GameMethodLocator(boolean searchLwjglLog) {
+			super(Opcodes.ASM7);
+			this.searchLwjglLog = searchLwjglLog;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			MethodNode candidate = new MethodNode(access, name, descriptor, signature, exceptions);
+
+			if (name.equals("<init>")) {
+				gameConstructor = candidate;
+				if (gameMethodQuality < 1) {
+					gameMethod = candidate;
+					gameMethodQuality = 1;
+				}
+			} else if (searchLwjglLog && gameMethodQuality < 2) {
+				// Try to find a non-constructor with an LDC string "LWJGL Version: ".
+				// This is the "init()" method, or called somewhere in that vicinity,
+				// and is by far superior in hooking into for a well-off mod start.
+
+				return new MethodVisitor(Opcodes.ASM7) {
+					private boolean found;
+
+					@Override
+					public void visitLdcInsn(Object cst) {
+						if (!found && cst instanceof String && ((String) cst).startsWith("LWJGL Version: ")) {
+							found = true;
+
+							if (gameMethodQuality < 2) {
+								gameMethod = candidate;
+								gameMethodQuality = "LWJGL Version: ".equals(cst) || "LWJGL Version: {}".equals(cst) ? 3 : 2;
+							}
+						}
+					}
+				};
+			}
+
+			return null;
+		}
+	}
+
+	private MethodInsnNode findMainMethodInsn(FabricLauncher launcher, String entrypoint, Predicate<MethodInsnNode> predicate, boolean last) throws IOException {
+		MethodInsnMatcher matcher = new MethodInsnMatcher((method) -> method.name.equals("main") && method.desc.equals("([Ljava/lang/String;)V") && isPublicStatic(method.access), predicate, last);
+		scanClass(launcher, entrypoint, matcher);
+
+		if (matcher.getMethod() == null) {
+			throw new RuntimeException("Could not find main method in " + entrypoint + "!");
+		}
+
+		return matcher.getMatch();
+	}
+
+	private static boolean isSameMethod(MethodNode method, MethodNode other) {
+		return other != null && method.name.equals(other.name) && method.desc.equals(other.desc);
+	}
+
 	@Override
 	public void process(FabricLauncher launcher, Consumer<ClassNode> classEmitter) {
 		EnvType type = launcher.getEnvironmentType();
@@ -52,7 +121,8 @@ public class EntrypointPatchHook extends EntrypointPatch {
 			String gameEntrypoint = null;
 			boolean serverHasFile = true;
 			boolean isApplet = entrypoint.contains("Applet");
-			ClassNode mainClass = loadClass(launcher, entrypoint);
+			// only the fields and the name are used, the main method is scanned
+			ClassNode mainClass = loadClass(launcher, entrypoint, (method) -> false);
 
 			if (mainClass == null) {
 				throw new RuntimeException("Could not load main class " + entrypoint + "!");
@@ -81,15 +151,10 @@ public class EntrypointPatchHook extends EntrypointPatch {
 
 			if (gameEntrypoint == null) {
 				// main method searches
-				MethodNode mainMethod = findMethod(mainClass, (method) -> method.name.equals("main") && method.desc.equals("([Ljava/lang/String;)V") && isPublicStatic(method.access));
-				if (mainMethod == null) {
-					throw new RuntimeException("Could not find main method in " + entrypoint + "!");
-				}
-
 				if (type == EnvType.SERVER) {
 					// pre-1.6 method search route
-					MethodInsnNode newGameInsn = (MethodInsnNode) findInsn(mainMethod,
-						(insn) -> insn.getOpcode() == Opcodes.INVOKESPECIAL && ((MethodInsnNode) insn).name.equals("<init>") && ((MethodInsnNode) insn).owner.equals(mainClass.name),
+					MethodInsnNode newGameInsn = findMainMethodInsn(launcher, entrypoint,
+						(insn) -> insn.getOpcode() == Opcodes.INVOKESPECIAL && insn.name.equals("<init>") && insn.owner.equals(mainClass.name),
 						false
 					);
 
@@ -101,10 +166,10 @@ public class EntrypointPatchHook extends EntrypointPatch {
 
 				if (gameEntrypoint == null) {
 					// modern method search routes
-					MethodInsnNode newGameInsn = (MethodInsnNode) findInsn(mainMethod,
+					MethodInsnNode newGameInsn = findMainMethodInsn(launcher, entrypoint,
 						type == EnvType.CLIENT
-						? (insn) -> (insn.getOpcode() == Opcodes.INVOKESPECIAL || insn.getOpcode() == Opcodes.INVOKEVIRTUAL) && !((MethodInsnNode) insn).owner.startsWith("java/")
-						: (insn) -> insn.getOpcode() == Opcodes.INVOKESPECIAL && ((MethodInsnNode) insn).name.equals("<init>") && ((MethodInsnNode) insn).desc.startsWith("(Ljava/io/File;"),
+						? (insn) -> (insn.getOpcode() == Opcodes.INVOKESPECIAL || insn.getOpcode() == Opcodes.INVOKEVIRTUAL) && !insn.owner.startsWith("java/")
+						: (insn) -> insn.getOpcode() == Opcodes.INVOKESPECIAL && insn.name.equals("<init>") && insn.desc.startsWith("(Ljava/io/File;"),
 						true
 					);
 
@@ -119,57 +184,19 @@ public class EntrypointPatchHook extends EntrypointPatch {
 			}
 
 			debug("Found game constructor: " + entrypoint + " -> " + gameEntrypoint);
-			ClassNode gameClass = gameEntrypoint.equals(entrypoint) ? mainClass : loadClass(launcher, gameEntrypoint);
-			if (gameClass == null) {
+			GameMethodLocator locator = new GameMethodLocator(type == EnvType.CLIENT && !isApplet);
+			if (!scanClass(launcher, gameEntrypoint, locator)) {
 				throw new RuntimeException("Could not load game class " + gameEntrypoint + "!");
 			}
 
-			MethodNode gameMethod = null;
-			MethodNode gameConstructor = null;
-			int gameMethodQuality = 0;
-
-			for (MethodNode gmCandidate : gameClass.methods) {
-				if (gmCandidate.name.equals("<init>")) {
-					gameConstructor = gmCandidate;
-					if (gameMethodQuality < 1) {
-						gameMethod = gmCandidate;
-						gameMethodQuality = 1;
-					}
-				} else if (type == EnvType.CLIENT && !isApplet && gameMethodQuality < 2) {
-					// Try to find a non-constructor with an LDC string "LWJGL Version: ".
-					// This is the "init()" method, or called somewhere in that vicinity,
-					// and is by far superior in hooking into for a well-off mod start.
-
-					int qual = 2;
-					boolean hasLwjglLog = false;
-					ListIterator<AbstractInsnNode> it = gmCandidate.instructions.iterator();
-					while (it.hasNext()) {
-						AbstractInsnNode insn = it.next();
-						if (insn instanceof LdcInsnNode) {
-							Object cst = ((LdcInsnNode) insn).cst;
-							if (cst instanceof String) {
-								String s = (String) cst;
-								if (s.startsWith("LWJGL Version: ")) {
-									hasLwjglLog = true;
-									if ("LWJGL Version: ".equals(s) || "LWJGL Version: {}".equals(s)) {
-										qual = 3;
-									}
-									break;
-								}
-							}
-						}
-					}
-
-					if (hasLwjglLog) {
-						gameMethod = gmCandidate;
-						gameMethodQuality = qual;
-					}
-				}
+			if (locator.gameMethod == null) {
+				throw new RuntimeException("Could not find game constructor method in " + gameEntrypoint.replace('.', '/') + "!");
 			}
 
-			if (gameMethod == null) {
-				throw new RuntimeException("Could not find game constructor method in " + gameClass.name + "!");
-			}
+			// only materialize the methods which get patched
+			ClassNode gameClass = loadClass(launcher, gameEntrypoint, (method) -> isSameMethod(method, locator.gameMethod) || isSameMethod(method, locator.gameConstructor));
+			MethodNode gameMethod = findMethod(gameClass, (method) -> isSameMethod(method, locator.gameMethod));
+			MethodNode gameConstructor = findMethod(gameClass, (method) -> isSameMethod(method, locator.gameConstructor));
 
 			boolean patched = false;
 			debug("Patching game constructor " + gameMethod.name + gameMethod.desc);
@@ -263,11 +290,7 @@ public class EntrypointPatchHook extends EntrypointPatch {
 				throw new RuntimeException("Game constructor patch not applied!");
 			}
 
-			if (gameClass != mainClass) {
-				classEmitter.accept(gameClass);
-			} else {
-				classEmitter.accept(mainClass);
-			}
+			classEmitter.accept(gameClass);
 
 			if (isApplet) {
 				EntrypointTransformer.appletMainClass = entrypoint;
@@ -17,6 +17,7 @@
 package net.fabricmc.loader.entrypoint.minecraft.hooks;
 
 import net.fabricmc.loader.FabricLoader;
+import net.fabricmc.loader.api.EntrypointContainer;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,14 +29,23 @@ final class EntrypointUtils {
 
 	}
 
-	static <T> void logErrors(String name, Collection<T> entrypoints, Consumer<T> entrypointConsumer) {
+	static <T> void invoke(String name, Class<T> type, Consumer<T> entrypointConsumer) {
+		if (!FabricLoader.INSTANCE.invokeEntrypointsInParallel(name, type, entrypointConsumer)) {
+			logErrors(name, FabricLoader.INSTANCE.getEntrypointContainers(name, type), entrypointConsumer);
+		}
+	}
+
+	/**
+	 * Each entrypoint's class is only loaded once its handle is invoked, right before it runs.
+	 */
+	static <T> void logErrors(String name, Collection<EntrypointContainer<T>> entrypoints, Consumer<T> entrypointConsumer) {
 		List<Throwable> errors = new ArrayList<>();
 
 		FabricLoader.INSTANCE.getLogger().debug("Iterating over entrypoint '" + name + "'");
 
 		entrypoints.forEach((e) -> {
 			try {
-				entrypointConsumer.accept(e);
+				entrypointConsumer.accept(e.getEntrypoint());
 			} catch (Throwable t) {
 				errors.add(t);
 			}
@@ -17,12 +17,19 @@
 package net.fabricmc.loader.game;
 
 import com.google.gson.Gson;
+import net.fabricmc.loader.util.JarEntryIndex;
 import net.fabricmc.loader.util.UrlConversionException;
 import net.fabricmc.loader.util.UrlUtil;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -37,11 +44,139 @@ final class GameProviderHelper {
 		}
 	}
 
+	/**
+	 * A classpath entry, looked up through the shared index of its entries if it is a JAR.
+	 */
+	private static final class ClasspathEntry {
+		final Path path;
+		final boolean directory;
+
+		ClasspathEntry(Path path) {
+			this.path = path;
+			this.directory = Files.isDirectory(path);
+		}
+
+		boolean contains(String filename) {
+			if (directory) {
+				return Files.exists(path.resolve(filename));
+			}
+
+			try {
+				return JarEntryIndex.get(path).contains(filename);
+			} catch (IOException e) {
+				// not a readable JAR, the class loader would skip it as well
+				return false;
+			}
+		}
+	}
+
+	private static final Map<ClassLoader, Optional<List<ClasspathEntry>>> classpaths = Collections.synchronizedMap(new WeakHashMap<>());
+
 	private GameProviderHelper() {
 
 	}
 
+	/**
+	 * @return The classpath of a loader in lookup order, parents first, or an empty Optional
+	 * if it can't be determined and the loader has to be asked instead.
+	 */
+	private static Optional<List<ClasspathEntry>> getClasspath(ClassLoader loader) {
+		Optional<List<ClasspathEntry>> ret = classpaths.get(loader);
+
+		if (ret == null) {
+			// computed outside of the map's lock, so concurrent provider probes don't wait on each other
+			ret = computeClasspath(loader);
+			Optional<List<ClasspathEntry>> prev = classpaths.putIfAbsent(loader, ret);
+
+			if (prev != null) {
+				ret = prev;
+			}
+		}
+
+		return ret;
+	}
+
+	private static Optional<List<ClasspathEntry>> computeClasspath(ClassLoader loader) {
+		ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+		ClassLoader platformLoader = systemLoader.getParent();
+		Deque<ClassLoader> chain = new ArrayDeque<>();
+
+		for (ClassLoader l = loader; l != null && l != platformLoader; l = l.getParent()) {
+			chain.addFirst(l);
+		}
+
+		List<ClasspathEntry> entries = new ArrayList<>();
+		Set<Path> visited = new HashSet<>();
+
+		try {
+			for (ClassLoader l : chain) {
+				if (l instanceof URLClassLoader) {
+					for (URL url : ((URLClassLoader) l).getURLs()) {
+						if (!url.getProtocol().equals("file")) {
+							return Optional.empty();
+						}
+
+						addClasspathEntry(UrlUtil.asPath(url), entries, visited);
+					}
+				} else if (l == systemLoader) {
+					for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+						if (!path.isEmpty()) {
+							addClasspathEntry(Paths.get(path), entries, visited);
+						}
+					}
+				} else {
+					return Optional.empty();
+				}
+			}
+		} catch (UrlConversionException | InvalidPathException e) {
+			return Optional.empty();
+		}
+
+		return Optional.of(entries);
+	}
+
+	/**
+	 * Adds a classpath entry followed by the JARs its manifest refers to, like a URLClassLoader would.
+	 */
+	private static void addClasspathEntry(Path path, List<ClasspathEntry> entries, Set<Path> visited) {
+		path = path.toAbsolutePath().normalize();
+		if (!visited.add(path)) {
+			return;
+		}
+
+		ClasspathEntry entry = new ClasspathEntry(path);
+		entries.add(entry);
+
+		if (entry.directory || !Files.isRegularFile(path)) {
+			return;
+		}
+
+		try {
+			for (String ref : JarEntryIndex.get(path).getManifestClassPath()) {
+				URI uri = path.getParent().toUri().resolve(ref);
+
+				if ("file".equals(uri.getScheme())) {
+					addClasspathEntry(Paths.get(uri), entries, visited);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// unreadable JARs and malformed references are skipped, as by the class loader
+		}
+	}
+
 	static Optional<Path> getSource(ClassLoader loader, String filename) {
+		Optional<List<ClasspathEntry>> classpath = getClasspath(loader);
+
+		if (classpath.isPresent()) {
+			for (ClasspathEntry entry : classpath.get()) {
+				if (entry.contains(filename)) {
+					return Optional.of(entry.path);
+				}
+			}
+
+			return Optional.empty();
+		}
+
 		URL url;
 		if ((url = loader.getResource(filename)) != null) {
 			try {
@@ -59,6 +194,20 @@ final class GameProviderHelper {
 	}
 
 	static List<Path> getSources(ClassLoader loader, String filename) {
+		Optional<List<ClasspathEntry>> classpath = getClasspath(loader);
+
+		if (classpath.isPresent()) {
+			List<Path> paths = new ArrayList<>();
+
+			for (ClasspathEntry entry : classpath.get()) {
+				if (entry.contains(filename)) {
+					paths.add(entry.path);
+				}
+			}
+
+			return paths;
+		}
+
 		try {
 			Enumeration<URL> urls = loader.getResources(filename);
 			List<Path> paths = new ArrayList<>();
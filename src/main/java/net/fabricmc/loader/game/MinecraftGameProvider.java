@@ -26,14 +26,13 @@ import net.fabricmc.loader.entrypoint.minecraft.EntrypointPatchFML125;
 import net.fabricmc.loader.entrypoint.minecraft.EntrypointPatchHook;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
 import net.fabricmc.loader.util.Arguments;
-import net.fabricmc.loader.util.FileSystemUtil;
+import net.fabricmc.loader.util.JarEntryIndex;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -152,10 +151,10 @@ public class MinecraftGameProvider implements GameProvider {
 		realmsJar = GameProviderHelper.getSource(loader, "realmsVersion").orElse(null);
 		hasModLoader = GameProviderHelper.getSource(loader, "ModLoader.class").isPresent();
 
-		try (FileSystemUtil.FileSystemDelegate jarFs = FileSystemUtil.getJarFileSystem(gameJar, false)) {
-			Path versionJson = jarFs.get().getPath("version.json");
-			if (Files.exists(versionJson)) {
-				versionData = GSON.fromJson(new String(Files.readAllBytes(versionJson), StandardCharsets.UTF_8), VersionData.class);
+		try {
+			byte[] versionJson = JarEntryIndex.get(gameJar).read("version.json");
+			if (versionJson != null) {
+				versionData = GSON.fromJson(new String(versionJson, StandardCharsets.UTF_8), VersionData.class);
 			}
 		} catch (IOException e) {
 			// TODO: migrate to Logger
@@ -19,6 +19,7 @@ package net.fabricmc.loader.language;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.util.ClassMemberIndex;
 import org.objectweb.asm.ClassReader;
 
 import java.io.IOException;
@@ -90,11 +91,13 @@ public class JavaLanguageAdapter implements LanguageAdapter {
 
 	@Override
 	public Object createInstance(Class<?> modClass, Options options) throws LanguageAdapterException {
+		Constructor<?> constructor = ClassMemberIndex.get(modClass).getDefaultConstructor();
+		if (constructor == null) {
+			throw new LanguageAdapterException("Could not find constructor for class " + modClass.getName() + "!");
+		}
+
 		try {
-			Constructor<?> constructor = modClass.getDeclaredConstructor();
 			return constructor.newInstance();
-		} catch (NoSuchMethodException e) {
-			throw new LanguageAdapterException("Could not find constructor for class " + modClass.getName() + "!", e);
 		} catch (IllegalAccessException e) {
 			throw new LanguageAdapterException("Could not access constructor of class " + modClass.getName() + "!", e);
 		} catch (InvocationTargetException | IllegalArgumentException | InstantiationException e) {
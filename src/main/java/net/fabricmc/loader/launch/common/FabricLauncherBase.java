@@ -16,11 +16,16 @@
 
 package net.fabricmc.loader.launch.common;
 
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
 import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.util.FileSystemUtil;
+import net.fabricmc.loader.util.HashUtil;
 import net.fabricmc.loader.util.mappings.TinyRemapperMappingsHelper;
 import net.fabricmc.loader.util.UrlConversionException;
 import net.fabricmc.loader.util.UrlUtil;
 import net.fabricmc.loader.util.Arguments;
+import net.fabricmc.mappings.ClassEntry;
 import net.fabricmc.mappings.Mappings;
 import net.fabricmc.tinyremapper.NonClassCopyMode;
 import net.fabricmc.tinyremapper.OutputConsumerPath;
@@ -33,11 +38,22 @@ import java.io.*;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public abstract class FabricLauncherBase implements FabricLauncher {
 	public static Path minecraftJar;
@@ -65,12 +81,19 @@ public abstract class FabricLauncherBase implements FabricLauncher {
 		return mappingConfiguration;
 	}
 
+	private static final int REMAP_CACHE_VERSION = 1;
+	private static final int MAX_REMAP_ATTEMPTS = 3;
+	private static final Map<Path, String> fileHashes = new ConcurrentHashMap<>();
 	private static boolean emittedInfo = false;
 
 	protected static void deobfuscate(String gameId, Path gameDir, Path jarFile, FabricLauncher launcher) {
-		Path resultJarFile = jarFile;
+		deobfuscate(gameId, gameDir, Collections.singletonList(jarFile), launcher);
+	}
+
+	protected static void deobfuscate(String gameId, Path gameDir, List<Path> jarFiles, FabricLauncher launcher) {
+		List<Path> resultJarFiles = new ArrayList<>(jarFiles);
 
-		LOGGER.debug("Requesting deobfuscation of " + jarFile.getFileName());
+		LOGGER.debug("Requesting deobfuscation of " + jarFiles.stream().map(Path::getFileName).map(Path::toString).collect(Collectors.joining(", ")));
 
 		Mappings mappings = launcher.isDevelopment() ? null : mappingConfiguration.getMappings();
 		String targetNamespace = mappingConfiguration.getTargetNamespace();
@@ -79,137 +102,652 @@ public abstract class FabricLauncherBase implements FabricLauncher {
 			LOGGER.debug("Fabric mapping file detected, applying...");
 
 			try {
-				if (!Files.exists(jarFile)) {
-					throw new RuntimeException("Could not locate Minecraft: " + jarFile + " not found");
+				Path deobfJarDir = gameDir.resolve(".fabric").resolve("remappedJars");
+				if (!gameId.isEmpty()) {
+					deobfJarDir = deobfJarDir.resolve(gameId);
 				}
 
-				// TODO: migrate to Path
-				File deobfJarDir = new File(gameDir.toFile(), ".fabric" + File.separator + "remappedJars" + (gameId.isEmpty() ? "" : File.separator + gameId));
-				if (!deobfJarDir.exists()) {
-					deobfJarDir.mkdirs();
-				}
+				Files.createDirectories(deobfJarDir);
+
+				String baseKey = getRemapBaseKey(targetNamespace);
+				// input JAR -> remapped JAR, for every JAR which has not been remapped yet
+				Map<Path, Path> pendingJars = new LinkedHashMap<>();
+				Map<Path, String> deobfJarPrefixes = new HashMap<>();
+
+				for (int i = 0; i < jarFiles.size(); i++) {
+					Path jarFile = jarFiles.get(i);
+
+					if (!Files.exists(jarFile)) {
+						throw new RuntimeException("Could not locate Minecraft: " + jarFile + " not found");
+					}
 
-				// TODO: allow versioning mappings?
-				String deobfJarFilename = mappingConfiguration.getTargetNamespace() + "-" + jarFile.getFileName();
-				File deobfJarFile = new File(deobfJarDir, deobfJarFilename);
-				File deobfJarFileTmp = new File(deobfJarDir, deobfJarFilename + ".tmp");
+					// the cache key covers everything the remapped output depends on, so
+					// changed mappings or a changed input JAR never reuse stale bytecode
+					String jarName = jarFile.getFileName().toString();
+					String deobfJarPrefix = targetNamespace + "-" + (jarName.endsWith(".jar") ? jarName.substring(0, jarName.length() - 4) : jarName);
+					String deobfJarFilename = deobfJarPrefix + "-" + getRemapCacheKey(baseKey, jarFile) + ".jar";
 
-				Path deobfJarPath = deobfJarFile.toPath();
-				Path deobfJarPathTmp = deobfJarFileTmp.toPath();
+					Path deobfJarPath = deobfJarDir.resolve(deobfJarFilename);
+					Path deobfJarPathTmp = getTmpPath(deobfJarPath);
 
-				if (Files.exists(deobfJarPathTmp)) {
-					LOGGER.warn("Incomplete remapped file found! This means that the remapping process failed on the previous launch. If this persists, make sure to let us at Fabric know!");
-					Files.deleteIfExists(deobfJarPathTmp);
-					deobfJarFileTmp.delete();
+					if (Files.exists(deobfJarPathTmp)) {
+						LOGGER.warn("Incomplete remapped file found! This means that the remapping process failed on the previous launch. If this persists, make sure to let us at Fabric know!");
+						Files.deleteIfExists(deobfJarPathTmp);
+					}
+
+					if (!Files.exists(deobfJarPath)) {
+						pendingJars.put(jarFile, deobfJarPath);
+					}
+
+					deobfJarPrefixes.put(deobfJarPath, deobfJarPrefix);
+					resultJarFiles.set(i, deobfJarPath);
 				}
 
-				if (!Files.exists(deobfJarPath)) {
-					boolean found = false;
-					while (!found) {
-						if (!emittedInfo) {
-							LOGGER.info("Fabric is preparing JARs on first launch, this may take a few seconds...");
-							emittedInfo = true;
-						}
+				// A patched input JAR only needs its changed classes remapped, if an
+				// output of an earlier version of it with the same mappings is around.
+				for (Iterator<Map.Entry<Path, Path>> it = pendingJars.entrySet().iterator(); it.hasNext(); ) {
+					Map.Entry<Path, Path> entry = it.next();
+					Path previousJar = findPreviousRemappedJar(deobfJarDir, deobfJarPrefixes.get(entry.getValue()), baseKey);
 
-						TinyRemapper remapper = TinyRemapper.newRemapper()
-							.withMappings(TinyRemapperMappingsHelper.create(mappings, "official", targetNamespace))
-							.rebuildSourceFilenames(true)
-							.build();
-
-						Set<Path> depPaths = new HashSet<>();
-
-						for (URL url : launcher.getLoadTimeDependencies()) {
-							try {
-								Path path = UrlUtil.asPath(url);
-								if (!Files.exists(path)) {
-									throw new RuntimeException("Path does not exist: " + path);
-								}
-
-								if (!path.equals(jarFile)) {
-									depPaths.add(path);
-								}
-							} catch (UrlConversionException e) {
-								throw new RuntimeException("Failed to convert '" + url + "' to path!", e);
-							}
-						}
+					if (previousJar == null) {
+						continue;
+					}
 
-						try (OutputConsumerPath outputConsumer = new OutputConsumerPath(deobfJarPath) {
-							@Override
-							public void accept(String clsName, byte[] data) {
-								// don't accept class names from a blacklist of dependencies that Fabric itself utilizes
-								// TODO: really could use a better solution, as always...
-								if (clsName.startsWith("com/google/common/")
-									|| clsName.startsWith("com/google/gson/")
-									|| clsName.startsWith("com/google/thirdparty/")
-									|| clsName.startsWith("org/apache/logging/log4j/")) {
-									return;
-								}
-
-								super.accept(clsName, data);
-							}
-						}) {
-							for (Path path : depPaths) {
-								LOGGER.debug("Appending '" + path + "' to remapper classpath");
-								remapper.readClassPath(path);
-							}
-							outputConsumer.addNonClassFiles(jarFile, NonClassCopyMode.FIX_META_INF, remapper);
-
-							remapper.readInputs(jarFile);
-							remapper.apply(outputConsumer);
-						} catch (IOException e) {
-							throw new RuntimeException("Failed to remap '" + jarFile + "'!", e);
-						} finally {
-							remapper.finish();
+					try {
+						if (remapJarDelta(entry.getKey(), entry.getValue(), previousJar, baseKey, mappings, targetNamespace, jarFiles, launcher)) {
+							it.remove();
 						}
+					} catch (IOException e) {
+						LOGGER.warn("Failed to remap changed classes of " + entry.getKey().getFileName() + ", remapping all of it", e);
+					}
+				}
 
-						// Minecraft doesn't tend to check if a ZipFileSystem is already present,
-						// so we clean up here.
-
-						depPaths.add(deobfJarPath);
-						for (Path p : depPaths) {
-							try {
-								p.getFileSystem().close();
-							} catch (Exception e) {
-								// pass
-							}
-
-							try {
-								FileSystems.getFileSystem(new URI("jar:" + p.toUri())).close();
-							} catch (Exception e) {
-								// pass
-							}
-						}
+				int attempts = 0;
 
-						deobfJarFileTmp.renameTo(deobfJarFile);
+				while (!pendingJars.isEmpty()) {
+					if (!emittedInfo) {
+						LOGGER.info("Fabric is preparing JARs on first launch, this may take a few seconds...");
+						emittedInfo = true;
+					}
 
-						JarFile jar = new JarFile(deobfJarFile);
-						if (jar.stream().noneMatch((e) -> e.getName().endsWith(".class"))) {
-							LOGGER.error("Generated deobfuscated JAR contains no classes! Trying again...");
-							deobfJarFile.delete();
-						} else {
-							found = true;
+					if (++attempts > MAX_REMAP_ATTEMPTS) {
+						throw new RuntimeException("Failed to remap " + pendingJars.keySet() + " after " + MAX_REMAP_ATTEMPTS + " attempts!");
+					}
+
+					Map<Path, Path> tmpJars = new LinkedHashMap<>();
+					for (Map.Entry<Path, Path> entry : pendingJars.entrySet()) {
+						tmpJars.put(entry.getKey(), getTmpPath(entry.getValue()));
+					}
+
+					Map<Path, RemapResult> results = remapJars(tmpJars, baseKey, mappings, targetNamespace, jarFiles, launcher);
+
+					for (Iterator<Map.Entry<Path, Path>> it = pendingJars.entrySet().iterator(); it.hasNext(); ) {
+						Map.Entry<Path, Path> entry = it.next();
+						Path deobfJarPath = entry.getValue();
+						RemapResult result = results.get(entry.getKey());
+
+						if (result == null || result.classCount.get() <= 0) {
+							LOGGER.error("Generated deobfuscated JAR " + deobfJarPath.getFileName() + " contains no classes! Trying again...");
+							Files.deleteIfExists(getTmpPath(deobfJarPath));
+							continue;
 						}
+
+						publishRemappedJar(deobfJarPath, result.getIndex());
+						it.remove();
 					}
 				}
 
-				if (!deobfJarFile.exists()) {
-					throw new RuntimeException("Remapped .JAR file does not exist after remapping! Cannot continue!");
-				}
+				for (Path deobfJarPath : resultJarFiles) {
+					if (!Files.exists(deobfJarPath)) {
+						throw new RuntimeException("Remapped .JAR file does not exist after remapping! Cannot continue!");
+					}
 
-				resultJarFile = deobfJarPath;
+					removeStaleRemappedJars(deobfJarDir, deobfJarPrefixes.get(deobfJarPath), deobfJarPath);
+				}
 			} catch (IOException e) {
 				throw new RuntimeException(e);
 			}
 		}
 
+		for (Path resultJarFile : resultJarFiles) {
+			try {
+				launcher.propose(UrlUtil.asUrl(resultJarFile));
+			} catch (UrlConversionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (minecraftJar == null && !resultJarFiles.isEmpty()) {
+			minecraftJar = resultJarFiles.get(0);
+		}
+	}
+
+	/**
+	 * @return A hash of everything but the input JAR which affects the remapped output.
+	 */
+	private static String getRemapBaseKey(String targetNamespace) {
+		MessageDigest digest = HashUtil.newDigest();
+		HashUtil.update(digest, Integer.toString(REMAP_CACHE_VERSION));
+		HashUtil.update(digest, getCodeVersion(TinyRemapper.class));
+		HashUtil.update(digest, targetNamespace);
+		HashUtil.update(digest, mappingConfiguration.getMappingsHash());
+
+		return HashUtil.toHex(digest.digest());
+	}
+
+	private static String getRemapCacheKey(String baseKey, Path jarFile) throws IOException {
+		MessageDigest digest = HashUtil.newDigest();
+		HashUtil.update(digest, baseKey);
+		HashUtil.update(digest, getFileHash(jarFile));
+
+		return HashUtil.toHex(digest.digest()).substring(0, 16);
+	}
+
+	/**
+	 * @return The SHA-256 of a file's contents, computed at most once per launch.
+	 */
+	public static String getFileHash(Path file) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		String hash = fileHashes.get(key);
+
+		if (hash == null) {
+			hash = HashUtil.hashFile(key);
+			fileHashes.put(key, hash);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * @return A string which changes whenever the loader itself does, for keying caches of its output.
+	 */
+	public static String getLoaderVersion() {
+		return getCodeVersion(FabricLauncherBase.class);
+	}
+
+	/**
+	 * @return Whether the loader runs from a class directory, as in development, where
+	 * {@link #getLoaderVersion} doesn't change along with its code.
+	 */
+	public static boolean isLoaderFromDirectory() {
+		CodeSource codeSource = FabricLauncherBase.class.getProtectionDomain().getCodeSource();
+		if (codeSource == null || codeSource.getLocation() == null) {
+			return false;
+		}
+
 		try {
-			launcher.propose(UrlUtil.asUrl(resultJarFile));
+			return Files.isDirectory(UrlUtil.asPath(codeSource.getLocation()));
 		} catch (UrlConversionException e) {
-			throw new RuntimeException(e);
+			return false;
+		}
+	}
+
+	/**
+	 * @return The version of the library containing the given class, or a string changing with its file.
+	 */
+	public static String getCodeVersion(Class<?> cls) {
+		Package pkg = cls.getPackage();
+		if (pkg != null && pkg.getImplementationVersion() != null) {
+			return pkg.getImplementationVersion();
+		}
+
+		// no manifest version; the file name of a Maven artifact contains the version as well,
+		// size and modification time catch local builds
+		CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+		if (codeSource == null || codeSource.getLocation() == null) {
+			return "unknown";
+		}
+
+		try {
+			Path path = UrlUtil.asPath(codeSource.getLocation());
+
+			if (Files.isRegularFile(path)) {
+				return path + ":" + Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+			}
+		} catch (IOException | UrlConversionException e) {
+			// fall through
+		}
+
+		return codeSource.getLocation().getPath();
+	}
+
+	private static Path getTmpPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".tmp");
+	}
+
+	private static void publishAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Moves a remapped JAR from its temporary path into place, followed by its index if
+	 * there is one. A JAR without an index is still valid, it just can't be delta remapped.
+	 */
+	private static void publishRemappedJar(Path deobfJarPath, RemappedJarIndex index) throws IOException {
+		publishAtomically(getTmpPath(deobfJarPath), deobfJarPath);
+
+		if (index != null) {
+			Path indexPath = RemappedJarIndex.getPath(deobfJarPath);
+			Path indexPathTmp = getTmpPath(indexPath);
+
+			try {
+				index.write(indexPathTmp);
+				publishAtomically(indexPathTmp, indexPath);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to write remapped JAR index " + indexPath.getFileName(), e);
+				Files.deleteIfExists(indexPathTmp);
+			}
+		}
+	}
+
+	/**
+	 * Deletes remapped JARs (and their side files) for the same input JAR name which
+	 * were produced with a different cache key, including pre-versioning ones.
+	 */
+	private static void removeStaleRemappedJars(Path deobfJarDir, String deobfJarPrefix, Path current) {
+		Pattern pattern = Pattern.compile(Pattern.quote(deobfJarPrefix) + "(-[0-9a-f]{16})?\\.jar(\\..+)?");
+		String currentName = current.getFileName().toString();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(deobfJarDir)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+
+				if (!name.startsWith(currentName) && pattern.matcher(name).matches()) {
+					LOGGER.debug("Removing stale remapped JAR " + name);
+
+					try {
+						Files.deleteIfExists(path);
+					} catch (IOException e) {
+						// most likely still in use by another instance; try again next launch
+						LOGGER.debug("Could not remove stale remapped JAR " + name, e);
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to clean up remapped JAR directory " + deobfJarDir, e);
+		}
+	}
+
+	/**
+	 * Finds the newest remapped JAR for the same input JAR name whose index was
+	 * written with the given base key, i.e. the same mappings and remapper.
+	 */
+	private static Path findPreviousRemappedJar(Path deobfJarDir, String deobfJarPrefix, String baseKey) {
+		Pattern pattern = Pattern.compile(Pattern.quote(deobfJarPrefix) + "-[0-9a-f]{16}\\.jar");
+		Path ret = null;
+		long retTime = Long.MIN_VALUE;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(deobfJarDir)) {
+			for (Path path : stream) {
+				if (!pattern.matcher(path.getFileName().toString()).matches()) {
+					continue;
+				}
+
+				RemappedJarIndex index = RemappedJarIndex.read(RemappedJarIndex.getPath(path));
+				long time = Files.getLastModifiedTime(path).toMillis();
+
+				if (index != null && index.key.equals(baseKey) && time > retTime) {
+					ret = path;
+					retTime = time;
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Failed to look for previous remapped JARs in " + deobfJarDir, e);
+			return null;
+		}
+
+		return ret;
+	}
+
+	private static TinyRemapper createRemapper(Mappings mappings, String targetNamespace) {
+		return TinyRemapper.newRemapper()
+			.withMappings(TinyRemapperMappingsHelper.create(mappings, "official", targetNamespace))
+			.rebuildSourceFilenames(true)
+			.threads(Runtime.getRuntime().availableProcessors())
+			.build();
+	}
+
+	/**
+	 * @param contextJars All game context JARs; these are never part of the returned class path.
+	 */
+	private static Set<Path> getRemapClassPath(Collection<Path> contextJars, FabricLauncher launcher) {
+		Set<Path> depPaths = new HashSet<>();
+
+		for (URL url : launcher.getLoadTimeDependencies()) {
+			try {
+				Path path = UrlUtil.asPath(url);
+				if (!Files.exists(path)) {
+					throw new RuntimeException("Path does not exist: " + path);
+				}
+
+				if (!contextJars.contains(path)) {
+					depPaths.add(path);
+				}
+			} catch (UrlConversionException e) {
+				throw new RuntimeException("Failed to convert '" + url + "' to path!", e);
+			}
+		}
+
+		return depPaths;
+	}
+
+	private static Map<String, String> getClassMap(Mappings mappings, String targetNamespace) {
+		Map<String, String> classMap = new HashMap<>();
+
+		for (ClassEntry entry : mappings.getClassEntries()) {
+			classMap.put(entry.get("official"), entry.get(targetNamespace));
+		}
+
+		return classMap;
+	}
+
+	private static boolean isRemapBlacklisted(String clsName) {
+		// don't accept class names from a blacklist of dependencies that Fabric itself utilizes
+		// TODO: really could use a better solution, as always...
+		return clsName.startsWith("com/google/common/")
+			|| clsName.startsWith("com/google/gson/")
+			|| clsName.startsWith("com/google/thirdparty/")
+			|| clsName.startsWith("org/apache/logging/log4j/");
+	}
+
+	private static void closeFileSystems(Collection<Path> paths) {
+		// Minecraft doesn't tend to check if a ZipFileSystem is already present,
+		// so we clean up here.
+
+		for (Path p : paths) {
+			try {
+				p.getFileSystem().close();
+			} catch (Exception e) {
+				// pass
+			}
+
+			try {
+				FileSystems.getFileSystem(new URI("jar:" + p.toUri())).close();
+			} catch (Exception e) {
+				// pass
+			}
+		}
+	}
+
+	private static final class RemapResult {
+		// counted as classes are written, so the output doesn't need to be reopened to verify it
+		final AtomicInteger classCount = new AtomicInteger();
+		final RemappedJarIndex index;
+		// remapped name -> record, for every class we know the remapped name of up front
+		final Map<String, RemappedJarIndex.ClassRecord> remappedClasses = new HashMap<>();
+		volatile boolean indexComplete = true;
+
+		RemapResult(RemappedJarIndex index) {
+			this.index = index;
+		}
+
+		RemappedJarIndex getIndex() {
+			return indexComplete ? index : null;
+		}
+	}
+
+	/**
+	 * Remaps all given JARs in a single TinyRemapper run, so that the class path is
+	 * only read once and the work is spread across all available cores.
+	 *
+	 * @param jars Map of input JAR -> output JAR.
+	 * @param contextJars All game context JARs; these are never read as class path.
+	 * @return Map of input JAR -> result; a class count of zero means the output is unusable.
+	 */
+	private static Map<Path, RemapResult> remapJars(Map<Path, Path> jars, String baseKey, Mappings mappings, String targetNamespace, Collection<Path> contextJars, FabricLauncher launcher) throws IOException {
+		TinyRemapper remapper = createRemapper(mappings, targetNamespace);
+		Set<Path> depPaths = getRemapClassPath(contextJars, launcher);
+
+		// TinyRemapper hands us remapped class names only, so figure out up front
+		// which output every input class belongs to.
+		Map<String, String> classMap = getClassMap(mappings, targetNamespace);
+		Map<String, Integer> classOutputs = new HashMap<>();
+		List<OutputConsumerPath> outputConsumers = new ArrayList<>();
+		List<RemapResult> results = new ArrayList<>();
+
+		try {
+			for (Map.Entry<Path, Path> entry : jars.entrySet()) {
+				int index = outputConsumers.size();
+				outputConsumers.add(new OutputConsumerPath(entry.getValue()));
+
+				try (JarFile jar = new JarFile(entry.getKey().toFile())) {
+					RemapResult result = new RemapResult(new RemappedJarIndex(baseKey, RemappedJarIndex.scan(jar)));
+					RemappedJarIndex.readShapes(jar, result.index.classes);
+					results.add(result);
+
+					for (Map.Entry<String, RemappedJarIndex.ClassRecord> classEntry : result.index.classes.entrySet()) {
+						String remappedName = remapClassName(classMap, classEntry.getKey());
+						classOutputs.putIfAbsent(remappedName, index);
+						result.remappedClasses.put(remappedName, classEntry.getValue());
+					}
+				}
+			}
+
+			for (Path path : depPaths) {
+				LOGGER.debug("Appending '" + path + "' to remapper classpath");
+				remapper.readClassPath(path);
+			}
+
+			int i = 0;
+			for (Path jarFile : jars.keySet()) {
+				outputConsumers.get(i++).addNonClassFiles(jarFile, NonClassCopyMode.FIX_META_INF, remapper);
+			}
+
+			remapper.readInputs(jars.keySet().toArray(new Path[0]));
+			remapper.apply((clsName, data) -> {
+				if (isRemapBlacklisted(clsName)) {
+					return;
+				}
+
+				int output = classOutputs.getOrDefault(clsName, 0);
+				RemapResult result = results.get(output);
+				RemappedJarIndex.ClassRecord record = result.remappedClasses.get(clsName);
+
+				if (record != null) {
+					record.remappedName = clsName;
+				} else {
+					result.indexComplete = false;
+				}
+
+				outputConsumers.get(output).accept(clsName, data);
+				result.classCount.incrementAndGet();
+			});
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to remap " + jars.keySet() + "!", e);
+		} finally {
+			remapper.finish();
+
+			for (int i = 0; i < outputConsumers.size(); i++) {
+				try {
+					outputConsumers.get(i).close();
+				} catch (IOException e) {
+					LOGGER.warn("Failed to close remapped JAR", e);
+					results.get(i).classCount.set(0);
+				}
+			}
+		}
+
+		depPaths.addAll(jars.values());
+		closeFileSystems(depPaths);
+
+		Map<Path, RemapResult> ret = new HashMap<>();
+		int i = 0;
+		for (Path jarFile : jars.keySet()) {
+			ret.put(jarFile, results.get(i++));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Remaps a patched input JAR by only running the classes which changed since
+	 * {@code previousJar} was produced through TinyRemapper. The remapped bytes of
+	 * all other classes are copied over from {@code previousJar}.
+	 *
+	 * @return Whether the output was produced and published; if not, a full remap is required.
+	 */
+	private static boolean remapJarDelta(Path jarFile, Path deobfJarPath, Path previousJar, String baseKey, Mappings mappings, String targetNamespace, Collection<Path> contextJars, FabricLauncher launcher) throws IOException {
+		RemappedJarIndex previous = RemappedJarIndex.read(RemappedJarIndex.getPath(previousJar));
+		if (previous == null) {
+			return false;
+		}
+
+		RemappedJarIndex index;
+		Set<String> changedClasses = new HashSet<>();
+
+		try (JarFile jar = new JarFile(jarFile.toFile())) {
+			index = new RemappedJarIndex(baseKey, RemappedJarIndex.scan(jar));
+
+			// Added or removed classes can change how the hierarchy around unchanged classes
+			// is remapped, and if most of the JAR changed a delta doesn't save anything.
+			if (!index.classes.keySet().equals(previous.classes.keySet())) {
+				LOGGER.debug("Class set of " + jarFile.getFileName() + " changed, remapping all of it");
+				return false;
+			}
+
+			for (Map.Entry<String, RemappedJarIndex.ClassRecord> entry : index.classes.entrySet()) {
+				RemappedJarIndex.ClassRecord previousRecord = previous.classes.get(entry.getKey());
+
+				if (entry.getValue().sameContents(previousRecord)) {
+					entry.getValue().shape = previousRecord.shape;
+					entry.getValue().remappedName = previousRecord.remappedName;
+				} else {
+					changedClasses.add(entry.getKey());
+				}
+			}
+
+			if (changedClasses.size() * 2 > index.classes.size()) {
+				LOGGER.debug("Most classes of " + jarFile.getFileName() + " changed, remapping all of it");
+				return false;
+			}
+
+			// Member names propagate along the hierarchy, so a changed superclass, interface
+			// or member list can change the output of unchanged subclasses and implementors.
+			RemappedJarIndex.readShapes(jar, index.classes);
+
+			for (String name : changedClasses) {
+				if (!index.classes.get(name).shape.equals(previous.classes.get(name).shape)) {
+					LOGGER.debug("Hierarchy or members of " + name + " in " + jarFile.getFileName() + " changed, remapping all of it");
+					return false;
+				}
+			}
+		}
+
+		LOGGER.info("Remapping " + changedClasses.size() + " changed classes of " + jarFile.getFileName() + "...");
+
+		Map<String, String> classMap = getClassMap(mappings, targetNamespace);
+		Map<String, RemappedJarIndex.ClassRecord> remappedChangedClasses = new HashMap<>();
+		for (String name : changedClasses) {
+			remappedChangedClasses.put(remapClassName(classMap, name), index.classes.get(name));
+		}
+
+		Path deobfJarPathTmp = getTmpPath(deobfJarPath);
+		TinyRemapper remapper = createRemapper(mappings, targetNamespace);
+		Set<Path> depPaths = getRemapClassPath(contextJars, launcher);
+		AtomicInteger classCount = new AtomicInteger();
+		AtomicBoolean indexComplete = new AtomicBoolean(true);
+		boolean success = false;
+
+		for (Path path : contextJars) {
+			if (!path.equals(jarFile)) {
+				depPaths.add(path);
+			}
+		}
+
+		try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix());
+			 JarFile jar = new JarFile(jarFile.toFile());
+			 FileSystemUtil.FileSystemDelegate previousFs = FileSystemUtil.getJarFileSystem(previousJar, false)) {
+			// unchanged classes are only needed as class path, for the hierarchy
+			Path classPathDir = fs.getPath("/classpath");
+			Path inputDir = fs.getPath("/input");
+
+			for (String name : index.classes.keySet()) {
+				Path target = (changedClasses.contains(name) ? inputDir : classPathDir).resolve(name + ".class");
+				Files.createDirectories(target.getParent());
+
+				try (InputStream stream = jar.getInputStream(jar.getEntry(name + ".class"))) {
+					Files.copy(stream, target);
+				}
+			}
+
+			try (OutputConsumerPath outputConsumer = new OutputConsumerPath(deobfJarPathTmp)) {
+				for (Path path : depPaths) {
+					remapper.readClassPath(path);
+				}
+
+				remapper.readClassPath(classPathDir);
+				outputConsumer.addNonClassFiles(jarFile, NonClassCopyMode.FIX_META_INF, remapper);
+
+				if (!changedClasses.isEmpty()) {
+					remapper.readInputs(inputDir);
+					remapper.apply((clsName, data) -> {
+						if (isRemapBlacklisted(clsName)) {
+							return;
+						}
+
+						RemappedJarIndex.ClassRecord record = remappedChangedClasses.get(clsName);
+
+						if (record != null) {
+							record.remappedName = clsName;
+						} else {
+							indexComplete.set(false);
+						}
+
+						outputConsumer.accept(clsName, data);
+						classCount.incrementAndGet();
+					});
+				}
+
+				for (Map.Entry<String, RemappedJarIndex.ClassRecord> entry : index.classes.entrySet()) {
+					String remappedName = entry.getValue().remappedName;
+
+					if (changedClasses.contains(entry.getKey()) || remappedName.isEmpty()) {
+						continue;
+					}
+
+					Path previousClass = previousFs.get().getPath(remappedName + ".class");
+					if (!Files.exists(previousClass)) {
+						LOGGER.warn("Previous remapped JAR " + previousJar.getFileName() + " is missing " + remappedName + ", remapping all of " + jarFile.getFileName());
+						return false;
+					}
+
+					outputConsumer.accept(remappedName, Files.readAllBytes(previousClass));
+					classCount.incrementAndGet();
+				}
+			}
+
+			success = classCount.get() > 0;
+		} finally {
+			remapper.finish();
+
+			depPaths.add(deobfJarPathTmp);
+			closeFileSystems(depPaths);
+
+			if (!success) {
+				Files.deleteIfExists(deobfJarPathTmp);
+			}
+		}
+
+		publishRemappedJar(deobfJarPath, indexComplete.get() ? index : null);
+		return true;
+	}
+
+	private static String remapClassName(Map<String, String> classMap, String name) {
+		String mapped = classMap.get(name);
+
+		if (mapped != null) {
+			return mapped;
 		}
 
-		if (minecraftJar == null) {
-			minecraftJar = resultJarFile;
+		int innerPos = name.lastIndexOf('$');
+		if (innerPos > 0) {
+			return remapClassName(classMap, name.substring(0, innerPos)) + name.substring(innerPos);
+		} else {
+			return name;
 		}
 	}
 
@@ -18,8 +18,6 @@ package net.fabricmc.loader.launch.common;
 
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.FabricLoader;
-import net.fabricmc.loader.api.ModContainer;
-import net.fabricmc.loader.metadata.LoaderModMetadata;
 import net.fabricmc.loader.util.mappings.MixinIntermediaryDevRemapper;
 import net.fabricmc.mappings.Mappings;
 import org.apache.logging.log4j.LogManager;
@@ -28,8 +26,11 @@ import org.spongepowered.asm.launch.MixinBootstrap;
 import org.spongepowered.asm.mixin.MixinEnvironment;
 import org.spongepowered.asm.mixin.Mixins;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public final class FabricMixinBootstrap {
 	private FabricMixinBootstrap() {
@@ -38,20 +39,13 @@ public final class FabricMixinBootstrap {
 
 	protected static Logger LOGGER = LogManager.getFormatterLogger("Fabric|MixinBootstrap");
 	private static boolean initialized = false;
+	private static MixinTargetIndex targetIndex;
+	private static MixinConfigLoader configLoader;
 
 	static void addConfiguration(String configuration) {
 		Mixins.addConfiguration(configuration);
 	}
 
-	static Set<String> getMixinConfigs(FabricLoader loader, EnvType type) {
-		return loader.getAllMods().stream()
-			.map(ModContainer::getMetadata)
-			.filter((m) -> m instanceof LoaderModMetadata)
-			.flatMap((m) -> ((LoaderModMetadata) m).getMixinConfigs(type).stream())
-			.filter(s -> s != null && !s.isEmpty())
-			.collect(Collectors.toSet());
-	}
-
 	public static void init(EnvType side, FabricLoader loader) {
 		if (initialized) {
 			throw new RuntimeException("FabricMixinBootstrap has already been initialized!");
@@ -76,7 +70,47 @@ public final class FabricMixinBootstrap {
 		}
 
 		MixinBootstrap.init();
-		getMixinConfigs(loader, side).forEach(FabricMixinBootstrap::addConfiguration);
+		configLoader = MixinConfigLoader.load(loader, side, FabricLauncherBase.getLauncher());
+		configLoader.getNames().forEach(FabricMixinBootstrap::addConfiguration);
+		targetIndex = configLoader.buildTargetIndex();
+		LOGGER.debug("Indexed the targets of %d of %d mixin configurations", targetIndex.getIndexedConfigCount(), configLoader.size());
 		initialized = true;
 	}
+
+	/**
+	 * @return The targets of the mixin configurations added by {@link #init}, or null before that.
+	 */
+	public static MixinTargetIndex getTargetIndex() {
+		return targetIndex;
+	}
+
+	/**
+	 * @return The mixin configurations added by {@link #init}, in registration order.
+	 */
+	public static List<String> getConfigs() {
+		List<String> ret = new ArrayList<>();
+
+		if (configLoader != null) {
+			configLoader.getNames().forEach(ret::add);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return The mixin configurations added by {@link #init} which have a plugin.
+	 */
+	public static List<String> getPluginConfigs() {
+		return configLoader != null ? configLoader.getPluginConfigs() : Collections.emptyList();
+	}
+
+	/**
+	 * Hands out a mixin configuration or refmap read by {@link #init}, once.
+	 *
+	 * @return The resource, or null if it wasn't read ahead or was taken already.
+	 */
+	public static InputStream getPreloadedResource(String name) {
+		byte[] data = configLoader != null ? configLoader.takeResource(name) : null;
+		return data != null ? new ByteArrayInputStream(data) : null;
+	}
 }
@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.launch.common;
 
+import net.fabricmc.loader.util.HashUtil;
 import net.fabricmc.mappings.Mappings;
 import net.fabricmc.mappings.MappingsProvider;
 import org.apache.logging.log4j.LogManager;
@@ -23,11 +24,14 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 public class MappingConfiguration {
 	protected static Logger LOGGER = LogManager.getFormatterLogger("FabricLoader");
 
 	private static Mappings mappings;
+	private static String mappingsHash;
 	private static boolean checkedMappings;
 
 	public Mappings getMappings() {
@@ -35,9 +39,13 @@ public class MappingConfiguration {
 			InputStream mappingStream = FabricLauncherBase.class.getClassLoader().getResourceAsStream("mappings/mappings.tiny");
 
 			if (mappingStream != null) {
+				MessageDigest digest = HashUtil.newDigest();
+				mappingStream = new DigestInputStream(mappingStream, digest);
+
 				try {
 					long time = System.currentTimeMillis();
 					mappings = MappingsProvider.readTinyMappings(mappingStream);
+					mappingsHash = HashUtil.toHex(digest.digest());
 					LOGGER.debug("Loading mappings took " + (System.currentTimeMillis() - time) + " ms");
 				} catch (IOException ee) {
 					ee.printStackTrace();
@@ -52,6 +60,7 @@ public class MappingConfiguration {
 
 			if (mappings == null) {
 				mappings = MappingsProvider.createEmptyMappings();
+				mappingsHash = "";
 			}
 
 			checkedMappings = true;
@@ -60,6 +69,14 @@ public class MappingConfiguration {
 		return mappings;
 	}
 
+	/**
+	 * @return A hash of the mappings file contents, or an empty string if no mappings are present.
+	 */
+	public String getMappingsHash() {
+		getMappings();
+		return mappingsHash;
+	}
+
 	public String getTargetNamespace() {
 		return FabricLauncherBase.getLauncher().isDevelopment() ? "named" : "intermediary";
 	}
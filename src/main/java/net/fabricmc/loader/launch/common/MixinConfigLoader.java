@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.common;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.metadata.LoaderModMetadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads, parses and checks the mixin configurations of all mods ahead of their
+ * registration with Mixin, on a worker pool.
+ *
+ * <p>Configurations are kept in the order of the mods declaring them, which is
+ * their dependency order. Their raw contents and those of their refmaps are kept
+ * until Mixin reads them, so that read is served from memory. Problems which Mixin
+ * would only log, or fail on when selecting the configuration during the first
+ * class transform, are thrown together from {@link #load}.</p>
+ */
+final class MixinConfigLoader {
+	private static final boolean PARALLEL = !Boolean.getBoolean("fabric.loader.disableParallelMixinConfigs");
+
+	private static final class Config {
+		final String modId;
+		final String name;
+		boolean plugin;
+		MixinTargetIndex.ConfigTargets targets;
+		Throwable error;
+
+		Config(String modId, String name) {
+			this.modId = modId;
+			this.name = name;
+		}
+	}
+
+	private final Map<String, Config> configs;
+	private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+
+	private MixinConfigLoader(Map<String, Config> configs) {
+		this.configs = configs;
+	}
+
+	static MixinConfigLoader load(FabricLoader loader, EnvType side, FabricLauncher launcher) {
+		Map<String, Config> configs = new LinkedHashMap<>();
+
+		for (ModContainer mod : loader.getAllMods()) {
+			if (!(mod.getMetadata() instanceof LoaderModMetadata)) {
+				continue;
+			}
+
+			for (String name : ((LoaderModMetadata) mod.getMetadata()).getMixinConfigs(side)) {
+				if (name != null && !name.isEmpty() && !configs.containsKey(name)) {
+					configs.put(name, new Config(mod.getMetadata().getId(), name));
+				}
+			}
+		}
+
+		MixinConfigLoader ret = new MixinConfigLoader(configs);
+		int threadCount = PARALLEL ? Math.min(Runtime.getRuntime().availableProcessors(), configs.size()) : 1;
+
+		if (threadCount <= 1) {
+			for (Config config : configs.values()) {
+				ret.read(config, side, launcher);
+			}
+		} else {
+			ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+			AtomicInteger threadId = new AtomicInteger();
+			ExecutorService executor = Executors.newFixedThreadPool(threadCount, (r) -> {
+				Thread thread = new Thread(r, "Fabric Mixin Config Loader #" + threadId.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setContextClassLoader(contextClassLoader);
+				return thread;
+			});
+
+			try {
+				CompletableFuture.allOf(configs.values().stream()
+					.map((config) -> CompletableFuture.runAsync(() -> ret.read(config, side, launcher), executor))
+					.toArray(CompletableFuture[]::new)).join();
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		RuntimeException exception = null;
+
+		for (Config config : configs.values()) {
+			if (config.error != null) {
+				if (exception == null) {
+					exception = new RuntimeException("Could not load mixin configurations due to errors!");
+				}
+
+				FabricMixinBootstrap.LOGGER.error("Invalid mixin configuration %s of mod %s: %s", config.name, config.modId, config.error.getMessage());
+				exception.addSuppressed(config.error);
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return The configuration names, in registration order.
+	 */
+	Iterable<String> getNames() {
+		return configs.keySet();
+	}
+
+	int size() {
+		return configs.size();
+	}
+
+	/**
+	 * @return The names of the configurations which have a plugin, in registration order.
+	 */
+	List<String> getPluginConfigs() {
+		List<String> ret = new ArrayList<>();
+
+		for (Config config : configs.values()) {
+			if (config.plugin) {
+				ret.add(config.name);
+			}
+		}
+
+		return ret;
+	}
+
+	MixinTargetIndex buildTargetIndex() {
+		Map<String, MixinTargetIndex.ConfigTargets> targets = new HashMap<>();
+
+		for (Config config : configs.values()) {
+			if (config.targets != null) {
+				targets.put(config.name, config.targets);
+			}
+		}
+
+		return new MixinTargetIndex(targets);
+	}
+
+	/**
+	 * @return The contents of a configuration or refmap which wasn't taken yet, or null.
+	 */
+	byte[] takeResource(String name) {
+		return resources.remove(name);
+	}
+
+	private void read(Config config, EnvType side, FabricLauncher launcher) {
+		try {
+			byte[] data = readResource(config.name, launcher);
+			if (data == null) {
+				throw new IOException("Mixin configuration " + config.name + " of mod " + config.modId + " could not be found");
+			}
+
+			JsonObject json = parseObject(config.name, data);
+
+			if (!json.has("package") || !json.get("package").isJsonPrimitive() || json.get("package").getAsString().isEmpty()) {
+				throw new JsonParseException("Mixin configuration " + config.name + " of mod " + config.modId + " does not specify a package");
+			}
+
+			config.plugin = json.has("plugin");
+			JsonObject refmap = null;
+
+			if (json.has("refmap")) {
+				// Mixin only warns about missing or invalid refmaps, so neither is an error here
+				String refmapName = json.get("refmap").getAsString();
+				byte[] refmapData = readResource(refmapName, launcher);
+
+				if (refmapData != null) {
+					resources.put(refmapName, refmapData);
+
+					try {
+						refmap = parseObject(refmapName, refmapData);
+					} catch (JsonParseException e) {
+						FabricMixinBootstrap.LOGGER.debug("Could not parse refmap %s: %s", refmapName, e);
+					}
+				}
+			}
+
+			resources.put(config.name, data);
+
+			try {
+				config.targets = MixinTargetIndex.index(json, refmap, side, launcher);
+			} catch (IOException | RuntimeException e) {
+				FabricMixinBootstrap.LOGGER.debug("Could not index targets of mixin configuration %s: %s", config.name, e);
+			}
+		} catch (IOException | RuntimeException e) {
+			config.error = e;
+		}
+	}
+
+	private static JsonObject parseObject(String name, byte[] data) {
+		JsonElement element = new JsonParser().parse(new String(data, StandardCharsets.UTF_8));
+
+		if (!element.isJsonObject()) {
+			throw new JsonParseException(name + " is not a JSON object");
+		}
+
+		return element.getAsJsonObject();
+	}
+
+	private static byte[] readResource(String name, FabricLauncher launcher) throws IOException {
+		try (InputStream stream = launcher.getResourceAsStream(name)) {
+			if (stream == null) {
+				return null;
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int len;
+
+			while ((len = stream.read(buffer)) > 0) {
+				out.write(buffer, 0, len);
+			}
+
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.common;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.fabricmc.api.EnvType;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The target classes of mixin configurations, read from the configurations and the
+ * {@code @Mixin} annotations of their mixins before Mixin selects them. The targets of an
+ * indexed configuration stand for the whole run, also after Mixin selected it.
+ *
+ * <p>Configurations with a plugin, which may add mixins, or whose mixins can't be read
+ * are not indexed. Target names given as strings are indexed both as written and as
+ * mapped by the configuration's refmap, so whichever name Mixin ends up using is known.</p>
+ */
+public final class MixinTargetIndex {
+	private static final String MIXIN_DESC = "Lorg/spongepowered/asm/mixin/Mixin;";
+
+	static final class ConfigTargets {
+		final String mixinPackage;
+		final Set<String> targets;
+
+		ConfigTargets(String mixinPackage, Set<String> targets) {
+			this.mixinPackage = mixinPackage;
+			this.targets = targets;
+		}
+	}
+
+	private final Map<String, ConfigTargets> configs;
+
+	/**
+	 * @param configs Configuration name -> targets, as returned by {@link #index}.
+	 */
+	MixinTargetIndex(Map<String, ConfigTargets> configs) {
+		this.configs = configs;
+	}
+
+	/**
+	 * @return The target class names of the configuration, or null if it wasn't indexed.
+	 */
+	public Set<String> getTargets(String config) {
+		ConfigTargets ret = configs.get(config);
+		return ret != null ? ret.targets : null;
+	}
+
+	/**
+	 * @return The mixin package of the configuration, with a trailing dot, or null if it wasn't indexed.
+	 */
+	public String getMixinPackage(String config) {
+		ConfigTargets ret = configs.get(config);
+		return ret != null ? ret.mixinPackage : null;
+	}
+
+	public int getIndexedConfigCount() {
+		return configs.size();
+	}
+
+	/**
+	 * @param config The parsed configuration.
+	 * @param refmap The parsed refmap of the configuration, or null if it has none.
+	 * @return The targets of the configuration, or null if it can't be indexed.
+	 */
+	static ConfigTargets index(JsonObject config, JsonObject refmap, EnvType side, FabricLauncher launcher) throws IOException {
+		if (config.has("plugin") || !config.has("package")) {
+			return null;
+		}
+
+		String mixinPackage = config.get("package").getAsString();
+		if (mixinPackage.isEmpty()) {
+			return null;
+		}
+
+		if (!mixinPackage.endsWith(".")) {
+			mixinPackage += ".";
+		}
+
+		List<String> mixins = new ArrayList<>();
+		addStrings(config, "mixins", mixins);
+		addStrings(config, side == EnvType.CLIENT ? "client" : "server", mixins);
+
+		Set<String> targets = new HashSet<>();
+
+		for (String mixin : mixins) {
+			String mixinClass = mixinPackage + mixin;
+			byte[] bytes = launcher.getClassByteArray(mixinClass);
+
+			if (bytes == null) {
+				return null;
+			}
+
+			for (Object target : getAnnotationTargets(bytes)) {
+				if (target instanceof Type) {
+					targets.add(((Type) target).getClassName());
+				} else {
+					String targetName = (String) target;
+					targets.add(targetName.replace('/', '.'));
+
+					if (refmap != null) {
+						addRefmapTargets(refmap, mixinClass.replace('.', '/'), targetName, targets);
+					}
+				}
+			}
+		}
+
+		return new ConfigTargets(mixinPackage, Collections.unmodifiableSet(targets));
+	}
+
+	/**
+	 * @return The {@link Type}s and strings of the mixin's {@code value} and {@code targets}.
+	 */
+	private static List<Object> getAnnotationTargets(byte[] bytes) {
+		List<Object> ret = new ArrayList<>();
+
+		new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM7) {
+			@Override
+			public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+				if (!MIXIN_DESC.equals(descriptor)) {
+					return null;
+				}
+
+				return new AnnotationVisitor(Opcodes.ASM7) {
+					@Override
+					public AnnotationVisitor visitArray(String name) {
+						if (!"value".equals(name) && !"targets".equals(name)) {
+							return null;
+						}
+
+						return new AnnotationVisitor(Opcodes.ASM7) {
+							@Override
+							public void visit(String name, Object value) {
+								ret.add(value);
+							}
+						};
+					}
+				};
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return ret;
+	}
+
+	private static void addRefmapTargets(JsonObject refmap, String mixinClass, String target, Set<String> targets) {
+		List<JsonObject> sections = new ArrayList<>();
+
+		if (refmap.has("mappings")) {
+			sections.add(refmap.getAsJsonObject("mappings"));
+		}
+
+		if (refmap.has("data")) {
+			for (Map.Entry<String, JsonElement> entry : refmap.getAsJsonObject("data").entrySet()) {
+				sections.add(entry.getValue().getAsJsonObject());
+			}
+		}
+
+		for (JsonObject section : sections) {
+			JsonElement mappings = section.get(mixinClass);
+
+			if (mappings != null && mappings.getAsJsonObject().has(target)) {
+				targets.add(mappings.getAsJsonObject().get(target).getAsString().replace('/', '.'));
+			}
+		}
+	}
+
+	private static void addStrings(JsonObject object, String key, List<String> out) {
+		if (object.has(key) && object.get(key).isJsonArray()) {
+			for (JsonElement element : object.getAsJsonArray(key)) {
+				out.add(element.getAsString());
+			}
+		}
+	}
+}
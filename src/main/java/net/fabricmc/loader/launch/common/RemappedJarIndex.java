@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.common;
+
+import net.fabricmc.loader.util.HashUtil;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Per-class record of a remapped JAR, stored next to it as {@code <jar>.classes}.
+ *
+ * <p>For every class of the input JAR it holds the CRC and size from the input's
+ * central directory, and the name the class was written under in the remapped JAR
+ * (empty if it was not written), as well as a hash of the class' shape: its
+ * superclass, interfaces, fields and methods. This allows a later launch to only
+ * remap the classes of a patched input JAR which actually changed, as long as no
+ * change affects how members of other classes are remapped.</p>
+ */
+final class RemappedJarIndex {
+	private static final String HEADER = "fabric-remapped-jar-index 2";
+
+	static final class ClassRecord {
+		final long crc;
+		final long size;
+		/**
+		 * Hash of the hierarchy and members, see {@link #readShape}; empty if not read yet.
+		 */
+		String shape = "";
+		String remappedName = "";
+
+		ClassRecord(long crc, long size) {
+			this.crc = crc;
+			this.size = size;
+		}
+
+		boolean sameContents(ClassRecord other) {
+			return crc == other.crc && size == other.size;
+		}
+	}
+
+	/**
+	 * Hashes everything of a class which TinyRemapper propagates member names along:
+	 * its superclass, interfaces and the names, descriptors and access of its members.
+	 */
+	static String readShape(byte[] classBytes) {
+		MessageDigest digest = HashUtil.newDigest();
+
+		new ClassReader(classBytes).accept(new ClassVisitor(Opcodes.ASM7) {
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+				HashUtil.update(digest, Integer.toString(access));
+				HashUtil.update(digest, superName);
+
+				for (String itf : interfaces) {
+					HashUtil.update(digest, itf);
+				}
+			}
+
+			@Override
+			public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+				HashUtil.update(digest, "F" + access + " " + name + " " + descriptor);
+				return null;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				HashUtil.update(digest, "M" + access + " " + name + " " + descriptor);
+				return null;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return HashUtil.toHex(digest.digest());
+	}
+
+	/**
+	 * Reads the shape of every class of the given records which doesn't have one yet.
+	 */
+	static void readShapes(JarFile jar, Map<String, ClassRecord> classes) throws IOException {
+		for (Map.Entry<String, ClassRecord> entry : classes.entrySet()) {
+			if (!entry.getValue().shape.isEmpty()) {
+				continue;
+			}
+
+			JarEntry jarEntry = jar.getJarEntry(entry.getKey() + ".class");
+			if (jarEntry == null) {
+				throw new IOException("Missing class " + entry.getKey() + " in " + jar.getName());
+			}
+
+			try (InputStream stream = jar.getInputStream(jarEntry)) {
+				entry.getValue().shape = readShape(readAll(stream));
+			}
+		}
+	}
+
+	private static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+
+		while ((len = stream.read(buffer)) > 0) {
+			out.write(buffer, 0, len);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Hash of everything but the input JAR which affects the remapped output.
+	 */
+	final String key;
+	/**
+	 * Original class name -> record.
+	 */
+	final Map<String, ClassRecord> classes;
+
+	RemappedJarIndex(String key, Map<String, ClassRecord> classes) {
+		this.key = key;
+		this.classes = classes;
+	}
+
+	static Path getPath(Path remappedJar) {
+		return remappedJar.resolveSibling(remappedJar.getFileName() + ".classes");
+	}
+
+	/**
+	 * Reads the class records of an input JAR from its central directory, without
+	 * decompressing any entry.
+	 */
+	static Map<String, ClassRecord> scan(JarFile jar) {
+		Map<String, ClassRecord> classes = new HashMap<>();
+
+		for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+			JarEntry entry = entries.nextElement();
+			String name = entry.getName();
+
+			if (name.endsWith(".class")) {
+				classes.put(name.substring(0, name.length() - 6), new ClassRecord(entry.getCrc(), entry.getSize()));
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * @return The index, or null if it does not exist or is not in a known format.
+	 */
+	static RemappedJarIndex read(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return null;
+			}
+
+			String key = reader.readLine();
+			if (key == null) {
+				return null;
+			}
+
+			Map<String, ClassRecord> classes = new HashMap<>();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split("\t", -1);
+				if (parts.length != 5) {
+					return null;
+				}
+
+				ClassRecord record = new ClassRecord(Long.parseLong(parts[1], 16), Long.parseLong(parts[2]));
+				record.shape = parts[3];
+				record.remappedName = parts[4];
+				classes.put(parts[0], record);
+			}
+
+			return new RemappedJarIndex(key, classes);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	void write(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write(HEADER);
+			writer.newLine();
+			writer.write(key);
+			writer.newLine();
+
+			for (Map.Entry<String, ClassRecord> entry : classes.entrySet()) {
+				ClassRecord record = entry.getValue();
+
+				writer.write(entry.getKey());
+				writer.write('\t');
+				writer.write(Long.toHexString(record.crc));
+				writer.write('\t');
+				writer.write(Long.toString(record.size));
+				writer.write('\t');
+				writer.write(record.shape);
+				writer.write('\t');
+				writer.write(record.remappedName);
+				writer.newLine();
+			}
+		}
+	}
+}
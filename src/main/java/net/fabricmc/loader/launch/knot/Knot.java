@@ -34,7 +34,13 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public final class Knot extends FabricLauncherBase {
@@ -51,7 +57,64 @@ public final class Knot extends FabricLauncherBase {
 		this.gameJarFile = gameJarFile;
 	}
 
+	/**
+	 * Probes all providers at once, the first one in the list is probed on the calling thread.
+	 *
+	 * @return The first provider in list order which located its game, or null.
+	 */
+	private GameProvider locateGame(List<GameProvider> providers, ClassLoader intermLoader) {
+		if (providers.size() <= 1) {
+			return providers.isEmpty() || !providers.get(0).locateGame(envType, intermLoader) ? null : providers.get(0);
+		}
+
+		AtomicInteger threadId = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(providers.size() - 1, (r) -> {
+			Thread thread = new Thread(r, "Fabric Game Provider Probe #" + threadId.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+
+			for (GameProvider p : providers.subList(1, providers.size())) {
+				results.add(executor.submit(() -> p.locateGame(envType, intermLoader)));
+			}
+
+			if (providers.get(0).locateGame(envType, intermLoader)) {
+				return providers.get(0);
+			}
+
+			for (int i = 0; i < results.size(); i++) {
+				if (results.get(i).get()) {
+					return providers.get(i + 1);
+				}
+			}
+
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else {
+				throw new RuntimeException(e.getCause());
+			}
+		} finally {
+			// lower priority probes still running are of no interest anymore
+			executor.shutdownNow();
+		}
+	}
+
 	protected void init(String[] args) {
+		init(args, null);
+	}
+
+	/**
+	 * @param bakeOutput If not null, bake the transformed class path into this JAR instead of launching the game.
+	 */
+	void init(String[] args, Path bakeOutput) {
 		setProperties(properties);
 
 		// configure fabric vars
@@ -81,13 +144,7 @@ public final class Knot extends FabricLauncherBase {
 		try {
 			// Create a classloader with the provided gameJarPath
 			ClassLoader intermLoader = new URLClassLoader(new URL[] { gameJarFile.toURL() }, this.getClass().getClassLoader());
-
-			for (GameProvider p : providers) {
-				if (p.locateGame(envType, intermLoader)) {
-					provider = p;
-					break;
-				}
-			}
+			provider = locateGame(providers, intermLoader);
 		} catch(MalformedURLException ex) {
 			throw new RuntimeException(ex);
 		}
@@ -111,15 +168,19 @@ public final class Knot extends FabricLauncherBase {
 		boolean useCompatibility = provider.requiresUrlClassLoader() || Boolean.parseBoolean(System.getProperty("fabric.loader.useCompatibilityClassLoader", "false"));
 		loader = useCompatibility ? new KnotCompatibilityClassLoader(isDevelopment(), envType, provider) : new KnotClassLoader(isDevelopment(), envType, provider);
 
+		String bakedJar = System.getProperty("fabric.loader.baked");
+		if (bakedJar != null && bakeOutput == null) {
+			launchBaked(Paths.get(bakedJar));
+			return;
+		}
+
 		if(provider.isObfuscated()) {
-			for (Path path : provider.getGameContextJars()) {
-				FabricLauncherBase.deobfuscate(
-					provider.getGameId(),
-					provider.getLaunchDirectory(),
-					path,
-					this
-				);
-			}
+			FabricLauncherBase.deobfuscate(
+				provider.getGameId(),
+				provider.getLaunchDirectory(),
+				provider.getGameContextJars(),
+				this
+			);
 		}
 
 		for (URL classPath : provider.getClassPaths()) {
@@ -127,7 +188,8 @@ public final class Knot extends FabricLauncherBase {
 		}
 
 		// Locate entrypoints before switching class loaders
-		provider.getEntrypointTransformer().locateEntrypoints(this);
+		Path entrypointCacheDir = provider.getLaunchDirectory().resolve(".fabric").resolve("entrypointPatches");
+		provider.getEntrypointTransformer().locateEntrypoints(this, entrypointCacheDir.resolve((provider.getGameId() != null ? provider.getGameId() : "game") + ".bin"), provider.getGameContextJars());
 
 		Thread.currentThread().setContextClassLoader((ClassLoader) loader);
 
@@ -141,6 +203,50 @@ public final class Knot extends FabricLauncherBase {
 
 		loader.getDelegate().initializeTransformers();
 
+		if (bakeOutput != null) {
+			try {
+				KnotBaker.bake(loader.getDelegate(), loader.getDelegate().getUrls(), FabricLoader.INSTANCE.getModContainers(), bakeOutput);
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to bake " + bakeOutput + "!", e);
+			}
+
+			return;
+		}
+
+		String gameId = provider.getGameId() != null ? provider.getGameId() : "game";
+		loader.getDelegate().startClassArchive(provider.getLaunchDirectory().resolve(".fabric").resolve("classArchive").resolve(gameId));
+		loader.getDelegate().startClassPrefetcher(provider.getLaunchDirectory().resolve(".fabric").resolve("classLoadOrder").resolve(gameId + ".txt"));
+
+		provider.launch((ClassLoader) loader);
+	}
+
+	/**
+	 * Launches the game from a JAR written by {@link KnotBake}, without mod discovery,
+	 * deobfuscation or any class transformation.
+	 */
+	private void launchBaked(Path bakedJar) {
+		bakedJar = bakedJar.toAbsolutePath().normalize();
+		LOGGER.info("Launching baked JAR " + bakedJar);
+
+		try {
+			loader.addURL(UrlUtil.asUrl(bakedJar.toFile()));
+		} catch (UrlConversionException e) {
+			throw new RuntimeException(e);
+		}
+
+		Thread.currentThread().setContextClassLoader((ClassLoader) loader);
+
+		FabricLoader.INSTANCE.setGameDir(new File("."));
+
+		try {
+			FabricLoader.INSTANCE.load(KnotBaker.readMods(FabricLoader.INSTANCE, bakedJar));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read baked JAR " + bakedJar + "!", e);
+		}
+
+		FabricLoader.INSTANCE.freeze();
+
+		// the transformers are never initialized, so Knot defines the baked classes as they are
 		provider.launch((ClassLoader) loader);
 	}
 
@@ -206,6 +312,10 @@ public final class Knot extends FabricLauncherBase {
 		return (ClassLoader) loader;
 	}
 
+	KnotClassDelegate getClassDelegate() {
+		return loader.getDelegate();
+	}
+
 	@Override
 	public byte[] getClassByteArray(String name) throws IOException {
 		return loader.getDelegate().getClassByteArray(name, false);
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import net.fabricmc.api.EnvType;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Runs mod discovery, deobfuscation and all class transformations like a launch would,
+ * then writes the result into a JAR for {@code -Dfabric.loader.baked=<jar>} launches.
+ *
+ * <p>Usage: {@code KnotBake <client|server> <output JAR> [game arguments]}</p>
+ */
+public class KnotBake {
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: KnotBake <client|server> <output JAR> [game arguments]");
+			System.exit(1);
+		}
+
+		EnvType envType;
+
+		switch (args[0].toLowerCase(Locale.ROOT)) {
+			case "client": {
+				envType = EnvType.CLIENT;
+			} break;
+			case "server": {
+				envType = EnvType.SERVER;
+			} break;
+			default: throw new RuntimeException("Invalid side provided: must be \"client\" or \"server\"!");
+		}
+
+		String gameJarPath = System.getProperty("fabric.gameJarPath");
+		new Knot(envType, gameJarPath != null ? new File(gameJarPath) : null).init(Arrays.copyOfRange(args, 2, args.length), Paths.get(args[1]));
+	}
+}
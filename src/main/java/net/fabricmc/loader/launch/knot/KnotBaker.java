@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.fabricmc.loader.FabricLoader;
+import net.fabricmc.loader.ModContainer;
+import net.fabricmc.loader.discovery.ModCandidate;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.metadata.LoaderModMetadata;
+import net.fabricmc.loader.metadata.ModMetadataParser;
+import net.fabricmc.loader.util.FileSystemUtil;
+import net.fabricmc.loader.util.UrlConversionException;
+import net.fabricmc.loader.util.UrlUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes and reads baked JARs: every class on the Knot class path after the entrypoint
+ * patches, environment stripping and Mixin, every other resource on it (the first one
+ * wins, like for class loading), and the metadata of all loaded mods in
+ * {@value #MODS_ENTRY}. Classes only Mixin can produce, which the transformed classes
+ * reference, are generated and baked as well.
+ *
+ * <p>A launch with {@code -Dfabric.loader.baked=<jar>} uses the JAR as its only class path
+ * entry and the recorded mods as they are, without running mod discovery, resolution or
+ * any class transformation.</p>
+ */
+final class KnotBaker {
+	private static final Logger LOGGER = LogManager.getFormatterLogger("Fabric|Knot");
+	private static final String MODS_ENTRY = "META-INF/fabric/baked-mods.json";
+	private static final Attributes.Name LOADER_VERSION = new Attributes.Name("Fabric-Baked-Loader-Version");
+	private static final Attributes.Name ENVIRONMENT = new Attributes.Name("Fabric-Baked-Environment");
+	private static final Attributes.Name NAMESPACE = new Attributes.Name("Fabric-Baked-Namespace");
+
+	private KnotBaker() {
+
+	}
+
+	static void bake(KnotClassDelegate delegate, Collection<URL> urls, Collection<ModContainer> mods, Path output) throws IOException {
+		Manifest manifest = new Manifest();
+		Attributes attributes = manifest.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.put(LOADER_VERSION, FabricLauncherBase.getLoaderVersion());
+		attributes.put(ENVIRONMENT, FabricLauncherBase.getLauncher().getEnvironmentType().name());
+		attributes.put(NAMESPACE, FabricLauncherBase.getLauncher().getTargetNamespace());
+
+		Path tmpOutput = output.toAbsolutePath().resolveSibling(output.getFileName() + ".tmp");
+		Set<String> written = new HashSet<>();
+		Set<String> introduced = new LinkedHashSet<>();
+		int classCount = 0;
+		int skippedCount = 0;
+		int generatedCount = 0;
+
+		if (output.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(output.toAbsolutePath().getParent());
+		}
+
+		try (JarOutputStream jar = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpOutput)), manifest)) {
+			written.add(JarFile.MANIFEST_NAME);
+			written.add(MODS_ENTRY);
+
+			for (URL url : new ArrayList<>(urls)) {
+				try (FileSystemUtil.FileSystemDelegate fs = openRoot(url)) {
+					Path root = fs == null ? UrlUtil.asPath(url) : fs.get().getRootDirectories().iterator().next();
+					List<Path> files;
+
+					try (Stream<Path> stream = Files.walk(root)) {
+						files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+					}
+
+					for (Path file : files) {
+						String name = getEntryName(root, file);
+
+						if (isSignatureFile(name) || !written.add(name)) {
+							continue;
+						}
+
+						byte[] bytes;
+
+						if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+							String className = name.substring(0, name.length() - 6).replace('/', '.');
+
+							try {
+								bytes = delegate.loadClassData(className, false);
+							} catch (Throwable t) {
+								// e.g. mixin classes or classes stripped from this environment, which can't be loaded either way
+								LOGGER.debug("Not baking %s: %s", className, t);
+								bytes = null;
+							}
+
+							if (bytes == null) {
+								skippedCount++;
+								continue;
+							}
+
+							classCount++;
+							byte[] input = delegate.getClassByteArray(className, true);
+
+							if (input != null && !Arrays.equals(input, bytes)) {
+								Set<String> references = getReferencedClasses(bytes);
+								references.removeAll(getReferencedClasses(input));
+								introduced.addAll(references);
+							}
+						} else {
+							bytes = Files.readAllBytes(file);
+						}
+
+						jar.putNextEntry(new JarEntry(name));
+						jar.write(bytes);
+						jar.closeEntry();
+					}
+				} catch (UrlConversionException e) {
+					throw new IOException("Could not bake class path entry " + url, e);
+				}
+			}
+
+			// classes Mixin synthesizes for the transformed classes aren't on the class path
+			Deque<String> queue = new ArrayDeque<>(introduced);
+			Set<String> missing = new LinkedHashSet<>();
+			ClassLoader parentLoader = KnotBaker.class.getClassLoader();
+
+			while (!queue.isEmpty()) {
+				String name = queue.poll() + ".class";
+
+				if (written.contains(name) || parentLoader.getResource(name) != null) {
+					continue;
+				}
+
+				written.add(name);
+
+				String className = name.substring(0, name.length() - 6).replace('/', '.');
+				byte[] bytes;
+
+				try {
+					bytes = delegate.loadClassData(className, false);
+				} catch (Throwable t) {
+					LOGGER.debug("Could not generate %s: %s", className, t);
+					bytes = null;
+				}
+
+				if (bytes == null) {
+					missing.add(className);
+					continue;
+				}
+
+				jar.putNextEntry(new JarEntry(name));
+				jar.write(bytes);
+				jar.closeEntry();
+				generatedCount++;
+				queue.addAll(getReferencedClasses(bytes));
+			}
+
+			if (!missing.isEmpty()) {
+				throw new IOException("Classes referenced by transformed classes can't be baked: " + String.join(", ", missing));
+			}
+
+			jar.putNextEntry(new JarEntry(MODS_ENTRY));
+			jar.write(getModsJson(urls, mods).getBytes(StandardCharsets.UTF_8));
+			jar.closeEntry();
+		} catch (IOException e) {
+			Files.deleteIfExists(tmpOutput);
+			throw e;
+		}
+
+		try {
+			Files.move(tmpOutput, output, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpOutput, output, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		LOGGER.info("Baked %d classes of %d mods and %d generated classes into %s, skipped %d classes which can't be loaded", classCount, mods.size(), generatedCount, output, skippedCount);
+	}
+
+	/**
+	 * @return The mods recorded in the baked JAR, with the JAR as the origin of all mods which
+	 * were baked into it.
+	 */
+	static List<ModCandidate> readMods(FabricLoader loader, Path bakedJar) throws IOException {
+		URL bakedUrl;
+		URL loaderUrl = FabricLauncherBase.getLauncher().getClass().getProtectionDomain().getCodeSource().getLocation();
+
+		try {
+			bakedUrl = UrlUtil.asUrl(bakedJar.toAbsolutePath().normalize().toFile());
+		} catch (UrlConversionException e) {
+			throw new IOException(e);
+		}
+
+		try (JarFile jar = new JarFile(bakedJar.toFile())) {
+			Attributes attributes = jar.getManifest() != null ? jar.getManifest().getMainAttributes() : null;
+			JarEntry modsEntry = jar.getJarEntry(MODS_ENTRY);
+
+			if (attributes == null || modsEntry == null) {
+				throw new IOException(bakedJar + " is not a baked JAR");
+			}
+
+			String environment = FabricLauncherBase.getLauncher().getEnvironmentType().name();
+			if (!environment.equals(attributes.getValue(ENVIRONMENT))) {
+				throw new IOException(bakedJar + " was baked for " + attributes.getValue(ENVIRONMENT).toLowerCase(Locale.ROOT) + ", not " + environment.toLowerCase(Locale.ROOT));
+			}
+
+			if (!FabricLauncherBase.getLoaderVersion().equals(attributes.getValue(LOADER_VERSION))) {
+				// the baked classes and metadata may not match what this loader expects
+				throw new IOException(bakedJar + " was baked by loader version " + attributes.getValue(LOADER_VERSION) + ", not " + FabricLauncherBase.getLoaderVersion());
+			}
+
+			List<ModCandidate> ret = new ArrayList<>();
+
+			try (Reader reader = new InputStreamReader(jar.getInputStream(modsEntry), StandardCharsets.UTF_8)) {
+				for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+					JsonObject mod = element.getAsJsonObject();
+					byte[] json = mod.get("metadata").toString().getBytes(StandardCharsets.UTF_8);
+					URL originUrl = mod.get("baked").getAsBoolean() ? bakedUrl : loaderUrl;
+
+					for (LoaderModMetadata info : ModMetadataParser.getMods(loader, new ByteArrayInputStream(json))) {
+						ret.add(new ModCandidate(info, originUrl, 0));
+					}
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	/**
+	 * @return The raw metadata of every mod, and whether its origin was baked.
+	 */
+	private static String getModsJson(Collection<URL> urls, Collection<ModContainer> mods) throws IOException {
+		Set<String> bakedUrls = urls.stream().map(URL::toString).collect(Collectors.toSet());
+		JsonArray ret = new JsonArray();
+
+		for (ModContainer mod : mods) {
+			JsonObject entry = new JsonObject();
+			entry.addProperty("baked", bakedUrls.contains(mod.getOriginUrl().toString()));
+
+			try (FileSystemUtil.FileSystemDelegate fs = openRoot(mod.getOriginUrl())) {
+				Path root = fs == null ? UrlUtil.asPath(mod.getOriginUrl()) : fs.get().getRootDirectories().iterator().next();
+
+				try (Reader reader = Files.newBufferedReader(root.resolve("fabric.mod.json"), StandardCharsets.UTF_8)) {
+					entry.add("metadata", new JsonParser().parse(reader));
+				}
+			} catch (UrlConversionException e) {
+				throw new IOException("Could not read metadata of mod " + mod.getInfo().getId(), e);
+			}
+
+			ret.add(entry);
+		}
+
+		return ret.toString();
+	}
+
+	/**
+	 * @return The internal names of the classes in the constant pool of the class.
+	 */
+	static Set<String> getReferencedClasses(byte[] bytes) {
+		ClassReader reader = new ClassReader(bytes);
+		char[] buffer = new char[reader.getMaxStringLength()];
+		Set<String> ret = new HashSet<>();
+
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			int offset = reader.getItem(i);
+
+			if (offset == 0 || reader.b[offset - 1] != 7) { // CONSTANT_Class
+				continue;
+			}
+
+			String name = reader.readUTF8(offset, buffer);
+
+			if (name.startsWith("[")) {
+				Type type = Type.getType(name).getElementType();
+
+				if (type.getSort() != Type.OBJECT) {
+					continue;
+				}
+
+				name = type.getInternalName();
+			}
+
+			ret.add(name);
+		}
+
+		ret.remove(reader.getClassName());
+		return ret;
+	}
+
+	/**
+	 * @return The file system of a JAR, or null for a directory.
+	 */
+	private static FileSystemUtil.FileSystemDelegate openRoot(URL url) throws IOException, UrlConversionException {
+		Path path = UrlUtil.asPath(url);
+		return Files.isDirectory(path) ? null : FileSystemUtil.getJarFileSystem(path, false);
+	}
+
+	private static String getEntryName(Path root, Path file) {
+		StringBuilder ret = new StringBuilder();
+
+		for (Path element : root.relativize(file)) {
+			if (ret.length() > 0) {
+				ret.append('/');
+			}
+
+			ret.append(element.toString());
+		}
+
+		return ret.toString();
+	}
+
+	/**
+	 * Signatures of the original JARs don't match the transformed classes anymore.
+	 */
+	private static boolean isSignatureFile(String name) {
+		if (!name.startsWith("META-INF/") || name.indexOf('/', 9) >= 0) {
+			return false;
+		}
+
+		String upperName = name.toUpperCase(Locale.ROOT);
+		return upperName.endsWith(".SF") || upperName.endsWith(".RSA") || upperName.endsWith(".DSA") || upperName.endsWith(".EC") || upperName.equals("META-INF/MANIFEST.MF");
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import net.fabricmc.loader.launch.common.FabricLauncher;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.util.HashUtil;
+import net.fabricmc.loader.util.UrlConversionException;
+import net.fabricmc.loader.util.UrlUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spongepowered.asm.mixin.transformer.MixinTransformer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archive of the final, transformed bytes of the classes Knot defined during a launch.
+ *
+ * <p>With {@code -Dfabric.loader.classArchive=dump}, every class Knot transforms is written
+ * to {@code classes.jar} in the archive directory, its name to {@code classlist} in load
+ * order, and the key of the mods and mappings it was built with to {@code key}. With
+ * {@code -Dfabric.loader.classArchive=use}, classes present in the archive are defined from
+ * it directly instead of running the transformation pipeline, as long as the key still
+ * matches. Otherwise the archive is ignored. The key covers the mods, the game, the mappings,
+ * the loader and Mixin versions, and all {@code mixin.*} and {@code fabric.*} system properties
+ * which may change the transformed classes.</p>
+ *
+ * <p>Archived classes don't go through Mixin, so mixin configuration plugins wouldn't see them
+ * in {@code preApply} and {@code postApply}. Archives are therefore not supported when any mixin
+ * configuration has a plugin, nor when the loader runs from a class directory, whose version
+ * doesn't change with its code.</p>
+ *
+ * <p>The JVM (13+) shares classes of custom class loaders when they are defined from the same
+ * bytes as during the run which created the shared archive. Running the dump launch, or a
+ * later launch using the archive, with {@code -XX:ArchiveClassesAtExit=fabric.jsa} therefore
+ * allows later boots using the archive with {@code -XX:SharedArchiveFile=fabric.jsa} to map
+ * the classes instead of parsing them. Older JVMs just skip the pipeline.</p>
+ */
+final class KnotClassArchive {
+	private static final Logger LOGGER = LogManager.getFormatterLogger("Fabric|Knot");
+	private static final int FORMAT_VERSION = 2;
+	private static final String CLASSES_FILE = "classes.jar";
+	private static final String CLASS_LIST_FILE = "classlist";
+	private static final String KEY_FILE = "key";
+	/**
+	 * Properties which don't affect the transformed classes, and so are left out of the key.
+	 */
+	private static final Set<String> LOAD_PROPERTIES = new HashSet<>(Arrays.asList(
+		"fabric.loader.classArchive",
+		"fabric.loader.classCacheSize",
+		"fabric.loader.classLoadOrderLimit",
+		"fabric.loader.classPrefetchThreads",
+		"fabric.loader.disableClassPrefetch",
+		"fabric.loader.disableParallelInit",
+		"fabric.loader.disableParallelMixinConfigs",
+		"fabric.loader.negativeClassCacheSize"
+	));
+
+	private final Path dir;
+	private final String key;
+	private final ZipFile zip;
+	private final ZipOutputStream output;
+	private final List<String> classList = new ArrayList<>();
+	private boolean closed;
+
+	private KnotClassArchive(Path dir, String key, ZipFile zip, ZipOutputStream output) {
+		this.dir = dir;
+		this.key = key;
+		this.zip = zip;
+		this.output = output;
+	}
+
+	/**
+	 * @return The archive to use, or null if there is none matching the key.
+	 */
+	static KnotClassArchive open(Path dir, String key) {
+		Path keyFile = dir.resolve(KEY_FILE);
+		Path classesFile = dir.resolve(CLASSES_FILE);
+
+		try {
+			if (!Files.isRegularFile(keyFile) || !Files.isRegularFile(classesFile)) {
+				LOGGER.info("No class archive found in %s, run with -Dfabric.loader.classArchive=dump to create it", dir);
+				return null;
+			}
+
+			if (!key.equals(new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8).trim())) {
+				LOGGER.warn("Class archive in %s was created with different mods or mappings, ignoring it", dir);
+				return null;
+			}
+
+			ZipFile zip = new ZipFile(classesFile.toFile());
+			LOGGER.info("Using class archive in %s with %d classes", dir, zip.size());
+
+			return new KnotClassArchive(dir, key, zip, null);
+		} catch (IOException e) {
+			LOGGER.warn("Could not open class archive in %s: %s", dir, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts a new archive, which is completed at exit.
+	 */
+	static KnotClassArchive create(Path dir, String key) {
+		try {
+			Files.createDirectories(dir);
+			// an outdated archive must not be used with a partial dump
+			Files.deleteIfExists(dir.resolve(KEY_FILE));
+
+			ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(getTmpPath(dir.resolve(CLASSES_FILE)))));
+			KnotClassArchive ret = new KnotClassArchive(dir, key, null, output);
+			Runtime.getRuntime().addShutdownHook(new Thread(ret::finish, "Fabric Class Archive Writer"));
+			LOGGER.info("Dumping transformed classes to %s", dir);
+
+			return ret;
+		} catch (IOException e) {
+			LOGGER.warn("Could not create class archive in %s: %s", dir, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return A key of everything which affects the transformed classes, or null if the
+	 * class loader's URLs can't be verified.
+	 */
+	static String getKey(FabricLauncher launcher, Collection<URL> urls) throws IOException {
+		MessageDigest digest = HashUtil.newDigest();
+		HashUtil.update(digest, Integer.toString(FORMAT_VERSION));
+		HashUtil.update(digest, FabricLauncherBase.getLoaderVersion());
+		HashUtil.update(digest, FabricLauncherBase.getCodeVersion(MixinTransformer.class));
+		HashUtil.update(digest, System.getProperty("java.version"));
+		HashUtil.update(digest, launcher.getEnvironmentType().name());
+		HashUtil.update(digest, launcher.getTargetNamespace());
+		HashUtil.update(digest, launcher.isDevelopment() ? "" : launcher.getMappingConfiguration().getMappingsHash());
+
+		// Mixin's options and the loader's, except for those which only tune how classes get loaded
+		List<String> properties = new ArrayList<>();
+
+		for (String property : System.getProperties().stringPropertyNames()) {
+			if ((property.startsWith("mixin.") || property.startsWith("fabric.")) && !LOAD_PROPERTIES.contains(property)) {
+				properties.add(property);
+			}
+		}
+
+		Collections.sort(properties);
+
+		for (String property : properties) {
+			HashUtil.update(digest, property);
+			HashUtil.update(digest, System.getProperty(property));
+		}
+
+		// the mods and the game
+		for (URL url : urls) {
+			Path path;
+
+			try {
+				path = UrlUtil.asPath(url);
+			} catch (UrlConversionException e) {
+				return null;
+			}
+
+			if (!Files.isRegularFile(path)) {
+				return null;
+			}
+
+			HashUtil.update(digest, FabricLauncherBase.getFileHash(path));
+		}
+
+		return HashUtil.toHex(digest.digest());
+	}
+
+	boolean isDumping() {
+		return output != null;
+	}
+
+	/**
+	 * @return The archived bytes of the class, or null if it has to be transformed.
+	 */
+	byte[] get(String name) {
+		if (zip == null || closed) {
+			return null;
+		}
+
+		ZipEntry entry = zip.getEntry(getEntryName(name));
+		if (entry == null) {
+			return null;
+		}
+
+		try (InputStream stream = zip.getInputStream(entry)) {
+			byte[] ret = new byte[(int) entry.getSize()];
+			new DataInputStream(stream).readFully(ret);
+			return ret;
+		} catch (IOException e) {
+			LOGGER.warn("Could not read %s from the class archive: %s", name, e);
+			return null;
+		}
+	}
+
+	synchronized void add(String name, byte[] bytes) {
+		if (output == null || closed) {
+			return;
+		}
+
+		try {
+			output.putNextEntry(new ZipEntry(getEntryName(name)));
+			output.write(bytes);
+			output.closeEntry();
+			classList.add(name);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write %s to the class archive: %s", name, e);
+			closed = true;
+		}
+	}
+
+	/**
+	 * Stops using or writing the archive, as it doesn't match the launch anymore.
+	 */
+	synchronized void discard() {
+		if (output != null && !closed) {
+			closed = true;
+
+			try {
+				output.close();
+				Files.deleteIfExists(getTmpPath(dir.resolve(CLASSES_FILE)));
+			} catch (IOException e) {
+				// only a temporary file is left behind
+			}
+		}
+	}
+
+	private synchronized void finish() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			output.close();
+
+			try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(CLASS_LIST_FILE), StandardCharsets.UTF_8)) {
+				for (String name : classList) {
+					writer.write(name.replace('.', '/'));
+					writer.newLine();
+				}
+			}
+
+			Path classesFile = dir.resolve(CLASSES_FILE);
+
+			try {
+				Files.move(getTmpPath(classesFile), classesFile, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(getTmpPath(classesFile), classesFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			// written last, so only a complete archive is ever used
+			Files.write(dir.resolve(KEY_FILE), key.getBytes(StandardCharsets.UTF_8));
+			LOGGER.info("Wrote %d classes to class archive in %s", classList.size(), dir);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write class archive to %s: %s", dir, e);
+		}
+	}
+
+	private static String getEntryName(String name) {
+		return name.replace('.', '/') + ".class";
+	}
+
+	private static Path getTmpPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".tmp");
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of raw class bytes, shared by the Knot class delegate and the Mixin
+ * service, so Mixin's repeated lookups of target and super classes and the eventual class
+ * load read each class file at most once.
+ *
+ * <p>Entries are softly referenced, so the cache gives way under memory pressure. Like the
+ * negative class cache, it has to be invalidated whenever a URL is added.</p>
+ */
+final class KnotClassCache {
+	static final class Entry {
+		private final byte[] bytes;
+		private final boolean fromUrls;
+
+		Entry(byte[] bytes, boolean fromUrls) {
+			this.bytes = bytes;
+			this.fromUrls = fromUrls;
+		}
+
+		/**
+		 * @return The raw class bytes, which must not be modified.
+		 */
+		byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return Whether the class was found on the class loader's own URLs, rather than
+		 * through its parent.
+		 */
+		boolean isFromUrls() {
+			return fromUrls;
+		}
+	}
+
+	private final int capacity;
+	private final Map<String, SoftReference<Entry>> entries;
+	private volatile long generation;
+
+	KnotClassCache(int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, SoftReference<Entry>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Entry>> eldest) {
+				return size() > KnotClassCache.this.capacity;
+			}
+		};
+	}
+
+	Entry get(String name) {
+		synchronized (entries) {
+			SoftReference<Entry> ref = entries.get(name);
+			Entry ret = ref != null ? ref.get() : null;
+
+			if (ref != null && ret == null) {
+				entries.remove(name);
+			}
+
+			return ret;
+		}
+	}
+
+	long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Adds an entry, unless the cache was invalidated since the given generation was read.
+	 */
+	void put(String name, Entry entry, long lookupGeneration) {
+		if (capacity <= 0) {
+			return;
+		}
+
+		synchronized (entries) {
+			if (generation == lookupGeneration) {
+				entries.put(name, new SoftReference<>(entry));
+			}
+		}
+	}
+
+	void invalidate() {
+		synchronized (entries) {
+			generation++;
+			entries.clear();
+		}
+	}
+}
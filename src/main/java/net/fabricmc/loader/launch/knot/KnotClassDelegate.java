@@ -19,13 +19,17 @@ package net.fabricmc.loader.launch.knot;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.game.GameProvider;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.launch.common.FabricMixinBootstrap;
 import net.fabricmc.loader.transformer.FabricTransformer;
 import net.fabricmc.loader.util.FileSystemUtil;
 import net.fabricmc.loader.util.UrlConversionException;
 import net.fabricmc.loader.util.UrlUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spongepowered.asm.lib.ClassReader;
+import org.spongepowered.asm.lib.tree.ClassNode;
 import org.spongepowered.asm.mixin.transformer.MixinTransformer;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
@@ -37,11 +41,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.CodeSource;
 import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.Manifest;
 
 class KnotClassDelegate {
+	private static final Logger LOGGER = LogManager.getFormatterLogger("Fabric|Knot");
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
 	static class Metadata {
 		static final Metadata EMPTY = new Metadata(null, null);
 
@@ -55,18 +66,29 @@ class KnotClassDelegate {
 	}
 
 	private final Map<String, Metadata> metadataCache = new HashMap<>();
+	private final NegativeClassCache negativeClassCache = new NegativeClassCache(Integer.getInteger("fabric.loader.negativeClassCacheSize", 8192));
+	private final KnotClassCache classCache = new KnotClassCache(Integer.getInteger("fabric.loader.classCacheSize", 4096));
+	private final List<URL> urls = new CopyOnWriteArrayList<>();
+	private final KnotMixinTargets mixinTargets = new KnotMixinTargets();
 	private final KnotClassLoaderInterface itf;
 	private final GameProvider provider;
 	private final boolean isDevelopment;
 	private final EnvType envType;
 	private MixinTransformer mixinTransformer;
 	private boolean transformInitialized = false;
+	private volatile KnotClassPrefetcher prefetcher;
+	private volatile KnotClassArchive classArchive;
 
 	KnotClassDelegate(boolean isDevelopment, EnvType envType, KnotClassLoaderInterface itf, GameProvider provider) {
 		this.isDevelopment = isDevelopment;
 		this.envType = envType;
 		this.itf = itf;
 		this.provider = provider;
+
+		if (LOGGER.isDebugEnabled()) {
+			// most lookups happen long after the class path is set up, so only the totals are telling
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> LOGGER.debug("Negative class cache: %s", negativeClassCache), "Fabric Class Loader Statistics"));
+		}
 	}
 
 	public void initializeTransformers() {
@@ -82,7 +104,77 @@ class KnotClassDelegate {
 			throw new RuntimeException(e);
 		}
 
+		mixinTargets.init(mixinTransformer);
 		transformInitialized = true;
+
+		if (LOGGER.isDebugEnabled()) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> LOGGER.debug("Mixin transformer: %s", mixinTargets), "Fabric Mixin Statistics"));
+		}
+	}
+
+	/**
+	 * Starts dumping transformed classes to, or loading them from, the class archive in the
+	 * given directory, depending on {@code fabric.loader.classArchive}. Must be called once
+	 * all URLs have been added.
+	 */
+	public void startClassArchive(Path dir) {
+		String mode = System.getProperty("fabric.loader.classArchive");
+
+		if (mode == null) {
+			return;
+		} else if (!mode.equals("dump") && !mode.equals("use")) {
+			LOGGER.warn("Unknown class archive mode '%s', must be 'dump' or 'use'", mode);
+			return;
+		}
+
+		if (FabricLauncherBase.isLoaderFromDirectory()) {
+			LOGGER.warn("Class archives require the loader to be a JAR, ignoring it");
+			return;
+		}
+
+		List<String> pluginConfigs = FabricMixinBootstrap.getPluginConfigs();
+
+		if (!pluginConfigs.isEmpty()) {
+			// archived classes skip Mixin, and with it the plugins' preApply and postApply
+			LOGGER.warn("Class archives can't be used with mixin configuration plugins, ignoring it (plugins in %s)", String.join(", ", pluginConfigs));
+			return;
+		}
+
+		String key;
+
+		try {
+			key = KnotClassArchive.getKey(FabricLauncherBase.getLauncher(), urls);
+		} catch (IOException e) {
+			LOGGER.warn("Could not verify class archive: %s", e);
+			return;
+		}
+
+		if (key == null) {
+			LOGGER.warn("Class archives require the game and all mods to be JARs, ignoring it");
+			return;
+		}
+
+		classArchive = mode.equals("dump") ? KnotClassArchive.create(dir, key) : KnotClassArchive.open(dir, key);
+	}
+
+	/**
+	 * Records the order classes get loaded in to the given file, and prefetches classes
+	 * in the order recorded by the previous launch.
+	 */
+	public void startClassPrefetcher(Path orderFile) {
+		KnotClassArchive classArchive = this.classArchive;
+
+		// classes come from the archive already
+		if (Boolean.getBoolean("fabric.loader.disableClassPrefetch") || classArchive != null && !classArchive.isDumping()) {
+			return;
+		}
+
+		int threadCount = Integer.getInteger("fabric.loader.classPrefetchThreads", Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+
+		prefetcher = KnotClassPrefetcher.start(orderFile, (name) -> {
+			byte[] input = getClassByteArray(name, true);
+			return input != null ? FabricTransformer.transform(isDevelopment, envType, name, input) : null;
+		}, threadCount);
 	}
 
 	private MixinTransformer getMixinTransformer() {
@@ -164,21 +256,52 @@ class KnotClassDelegate {
 			}
 		}
 
+		KnotClassArchive classArchive = this.classArchive;
+		byte[] ret = classArchive != null ? classArchive.get(name) : null;
+
+		if (ret == null) {
+			ret = transformClassData(name);
+
+			if (ret != null && classArchive != null) {
+				classArchive.add(name, ret);
+			}
+		}
+
+		return ret;
+	}
+
+	private byte[] transformClassData(String name) {
 		// Blocking Fabric Loader classes is no longer necessary here as they don't exist on the modding class loader
 		if (/* !"net.fabricmc.api.EnvType".equals(name) && !name.startsWith("net.fabricmc.loader.") && */ !name.startsWith("org.apache.logging.log4j")) {
+			KnotClassPrefetcher prefetcher = this.prefetcher;
 			byte[] input = provider.getEntrypointTransformer().transform(name);
-			if (input == null) {
-				try {
-					input = getClassByteArray(name, true);
-				} catch (IOException e) {
-					throw new RuntimeException("Failed to load class file for '" + name + "'!", e);
+			byte[] b = null;
+
+			if (input == null && prefetcher != null) {
+				b = prefetcher.take(name);
+			}
+
+			if (b == null) {
+				if (input == null) {
+					try {
+						input = getClassByteArray(name, true);
+					} catch (IOException e) {
+						throw new RuntimeException("Failed to load class file for '" + name + "'!", e);
+					}
+				}
+
+				if (input != null) {
+					b = FabricTransformer.transform(isDevelopment, envType, name, input);
 				}
 			}
 
-			if (input != null) {
-				byte[] b = FabricTransformer.transform(isDevelopment, envType, name, input);
-				b = getMixinTransformer().transformClassBytes(name, name, b);
-				return b;
+			if (b != null) {
+				if (prefetcher != null) {
+					prefetcher.record(name);
+				}
+
+				// classes no mixin targets can skip Mixin's transformer, which only lets one thread in
+				return mixinTargets.isRequired(name) ? getMixinTransformer().transformClassBytes(name, name, b) : b;
 			}
 		}
 
@@ -186,26 +309,128 @@ class KnotClassDelegate {
 		return getMixinTransformer().transformClassBytes(name, name, null);
 	}
 
+	/**
+	 * Must be called whenever a URL is added to the class loader, as classes which were
+	 * absent before may be present now.
+	 */
+	void onUrlAdded(URL url) {
+		urls.add(url);
+
+		KnotClassArchive classArchive = this.classArchive;
+		if (classArchive != null) {
+			LOGGER.warn("Added %s to the class path after the class archive was verified, not using it", url);
+			classArchive.discard();
+			this.classArchive = null;
+		}
+
+		if (negativeClassCache.getLookupCount() > 0) {
+			LOGGER.debug("Invalidating negative class cache: %s", negativeClassCache);
+		}
+
+		negativeClassCache.invalidate();
+		classCache.invalidate();
+
+		KnotClassPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher != null) {
+			prefetcher.invalidate();
+		}
+	}
+
+	/**
+	 * @return The URLs added to the class loader, in order.
+	 */
+	List<URL> getUrls() {
+		return Collections.unmodifiableList(urls);
+	}
+
 	String getClassFileName(String name) {
 		return name.replace('.', '/') + ".class";
 	}
 
 	public byte[] getClassByteArray(String name, boolean skipOriginalLoader) throws IOException {
+		KnotClassCache.Entry entry = getClassEntry(name, skipOriginalLoader);
+		return entry != null ? entry.getBytes() : null;
+	}
+
+	/**
+	 * @return The raw class, parsed anew for every call, so callers may modify it.
+	 */
+	public ClassNode getClassNode(String name) throws IOException, ClassNotFoundException {
+		KnotClassCache.Entry entry = getClassEntry(name, false);
+		if (entry == null) {
+			throw new ClassNotFoundException(name);
+		}
+
+		ClassNode node = new ClassNode();
+		new ClassReader(entry.getBytes()).accept(node, 0);
+		return node;
+	}
+
+	private KnotClassCache.Entry getClassEntry(String name, boolean skipOriginalLoader) throws IOException {
+		KnotClassCache.Entry entry = classCache.get(name);
+		if (entry != null) {
+			return entry.isFromUrls() || !skipOriginalLoader ? entry : null;
+		}
+
 		String classFile = getClassFileName(name);
-		InputStream inputStream = itf.getResourceAsStream(classFile, skipOriginalLoader);
-		if (inputStream == null) {
-			return null;
+		long generation = classCache.getGeneration();
+		long negativeGeneration = negativeClassCache.getGeneration();
+		boolean absent = negativeClassCache.contains(name);
+		URL url = absent ? null : itf.getResource(classFile, true);
+		boolean fromUrls = url != null;
+
+		if (url == null) {
+			if (!absent) {
+				negativeClassCache.add(name, negativeGeneration);
+			}
+
+			if (skipOriginalLoader || (url = itf.getResource(classFile, false)) == null) {
+				return null;
+			}
 		}
 
-		int a = inputStream.available();
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(a < 32 ? 32768 : a);
-		byte[] buffer = new byte[8192];
-		int len;
-		while ((len = inputStream.read(buffer)) > 0) {
-			outputStream.write(buffer, 0, len);
+		// for JAR entries the content length is the uncompressed size from the central directory
+		URLConnection connection = url.openConnection();
+		long size = connection.getContentLengthLong();
+
+		try (InputStream inputStream = connection.getInputStream()) {
+			entry = new KnotClassCache.Entry(readFully(inputStream, size), fromUrls);
 		}
 
-		inputStream.close();
-		return outputStream.toByteArray();
+		classCache.put(name, entry, generation);
+		return entry;
+	}
+
+	/**
+	 * Reads the stream into an array of exactly the expected size, only falling back to
+	 * growing the array if the size is unknown or turns out to be wrong.
+	 */
+	static byte[] readFully(InputStream stream, long expectedSize) throws IOException {
+		byte[] ret = new byte[expectedSize >= 0 && expectedSize <= MAX_ARRAY_SIZE ? (int) expectedSize : 8192];
+		int pos = 0;
+
+		for (;;) {
+			int len;
+
+			while (pos < ret.length && (len = stream.read(ret, pos, ret.length - pos)) > 0) {
+				pos += len;
+			}
+
+			if (pos < ret.length) {
+				return Arrays.copyOf(ret, pos);
+			}
+
+			int next = stream.read();
+			if (next < 0) {
+				return ret;
+			}
+
+			if (ret.length == MAX_ARRAY_SIZE) {
+				throw new IOException("Class file too large");
+			}
+
+			ret = Arrays.copyOf(ret, (int) Math.min(Math.max(ret.length * 2L, 8192), MAX_ARRAY_SIZE));
+			ret[pos++] = (byte) next;
+		}
 	}
 }
@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.SecureClassLoader;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Objects;
 
@@ -45,6 +46,7 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 	}
 
 	private final DynamicURLClassLoader urlLoader;
+	private final KnotResourceIndex resourceIndex = new KnotResourceIndex();
 	private final ClassLoader originalLoader;
 	private final KnotClassDelegate delegate;
 
@@ -67,11 +69,25 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 		}
 	}
 
+	private URL findUrlResource(String name) {
+		return resourceIndex.findResource(name);
+	}
+
+	private InputStream findUrlResourceAsStream(String name) {
+		URL url = resourceIndex.findResource(name);
+
+		try {
+			return url != null ? url.openStream() : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
 	@Override
 	public URL getResource(String name) {
 		Objects.requireNonNull(name);
 
-		URL url = urlLoader.getResource(name);
+		URL url = findUrlResource(name);
 		if (url == null) {
 			url = originalLoader.getResource(name);
 		}
@@ -82,7 +98,7 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 	public InputStream getResourceAsStream(String name) {
 		Objects.requireNonNull(name);
 
-		InputStream inputStream = urlLoader.getResourceAsStream(name);
+		InputStream inputStream = findUrlResourceAsStream(name);
 		if (inputStream == null) {
 			inputStream = originalLoader.getResourceAsStream(name);
 		}
@@ -93,7 +109,7 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 	public Enumeration<URL> getResources(String name) throws IOException {
 		Objects.requireNonNull(name);
 
-		Enumeration<URL> first = urlLoader.getResources(name);
+		Enumeration<URL> first = Collections.enumeration(resourceIndex.findResources(name));
 		Enumeration<URL> second = originalLoader.getResources(name);
 		return new Enumeration<URL>() {
 			Enumeration<URL> current = first;
@@ -143,7 +159,7 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 			if (c == null) {
 				byte[] input = delegate.loadClassData(name, resolve);
 				if (input != null) {
-					KnotClassDelegate.Metadata metadata = delegate.getMetadata(name, urlLoader.getResource(delegate.getClassFileName(name)));
+					KnotClassDelegate.Metadata metadata = delegate.getMetadata(name, findUrlResource(delegate.getClassFileName(name)));
 
 					int pkgDelimiterPos = name.lastIndexOf('.');
 					if (pkgDelimiterPos > 0) {
@@ -173,15 +189,26 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 	@Override
 	public void addURL(URL url) {
 		urlLoader.addURL(url);
+		resourceIndex.add(url);
+		delegate.onUrlAdded(url);
 	}
 
 	static {
 		registerAsParallelCapable();
 	}
 
+	@Override
+	public URL getResource(String name, boolean skipOriginalLoader) {
+		URL url = findUrlResource(name);
+		if (url == null && !skipOriginalLoader) {
+			url = originalLoader.getResource(name);
+		}
+		return url;
+	}
+
 	@Override
 	public InputStream getResourceAsStream(String classFile, boolean skipOriginalLoader) throws IOException {
-		InputStream inputStream = urlLoader.getResourceAsStream(classFile);
+		InputStream inputStream = findUrlResourceAsStream(classFile);
 		if (inputStream == null && !skipOriginalLoader) {
 			inputStream = originalLoader.getResourceAsStream(classFile);
 		}
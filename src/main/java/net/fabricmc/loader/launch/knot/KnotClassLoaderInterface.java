@@ -24,5 +24,6 @@ interface KnotClassLoaderInterface {
 	KnotClassDelegate getDelegate();
 	boolean isClassLoaded(String name);
 	void addURL(URL url);
+	URL getResource(String name, boolean skipOriginalLoader);
 	InputStream getResourceAsStream(String filename, boolean skipOriginalLoader) throws IOException;
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the order classes are loaded in during a launch, and on the next launch
+ * reads and pre-transforms the classes ahead of that order on background threads.
+ *
+ * <p>At most {@link #WINDOW} classes past the last one taken are fetched, and results
+ * which fell more than that behind are dropped again, so the buffer stays bounded.
+ * Classes which weren't prefetched are simply loaded on demand. Prefetching stops once
+ * too many consecutive loads are not part of the recorded order, or when a URL is added
+ * to the class loader.</p>
+ */
+final class KnotClassPrefetcher {
+	interface ClassFetcher {
+		byte[] fetch(String name) throws Exception;
+	}
+
+	private static final Logger LOGGER = LogManager.getFormatterLogger("Fabric|Knot");
+	private static final String HEADER = "fabric-class-load-order 1";
+	private static final int WINDOW = 512;
+	private static final int DIVERGENCE_LIMIT = 256;
+	private static final int MAX_RECORDED = Integer.getInteger("fabric.loader.classLoadOrderLimit", 32768);
+
+	private final Path file;
+	private final ClassFetcher fetcher;
+	private final String[] order;
+	private final Map<String, Integer> indices;
+	private final AtomicReferenceArray<byte[]> results;
+	private final List<String> recorded = new ArrayList<>();
+	private final AtomicBoolean saved = new AtomicBoolean();
+	private final AtomicInteger divergentLoads = new AtomicInteger();
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger takes = new AtomicInteger();
+	// guarded by this
+	private int position;
+	private int evicted;
+	private int nextIndex;
+	private volatile boolean stopped;
+
+	private KnotClassPrefetcher(Path file, ClassFetcher fetcher, List<String> order) {
+		this.file = file;
+		this.fetcher = fetcher;
+		this.order = order.toArray(new String[0]);
+		this.indices = new HashMap<>(order.size() * 2);
+		this.results = new AtomicReferenceArray<>(order.size());
+
+		for (int i = 0; i < this.order.length; i++) {
+			indices.putIfAbsent(this.order[i], i);
+		}
+	}
+
+	/**
+	 * Starts prefetching based on the order recorded in the given file, if any, and
+	 * records this launch's order to it at exit.
+	 */
+	static KnotClassPrefetcher start(Path file, ClassFetcher fetcher, int threadCount) {
+		List<String> order = Collections.emptyList();
+
+		try {
+			order = read(file);
+		} catch (IOException e) {
+			LOGGER.warn("Could not read class load order from %s: %s", file, e);
+		}
+
+		KnotClassPrefetcher ret = new KnotClassPrefetcher(file, fetcher, order);
+		Runtime.getRuntime().addShutdownHook(new Thread(ret::save, "Fabric Class Load Order Writer"));
+
+		if (order.isEmpty() || threadCount <= 0) {
+			ret.stopped = true;
+			return ret;
+		}
+
+		LOGGER.debug("Prefetching %d classes on %d threads", order.size(), threadCount);
+
+		for (int i = 0; i < threadCount; i++) {
+			Thread thread = new Thread(ret::run, "Fabric Class Prefetcher #" + (i + 1));
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			thread.start();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return The prefetched, not yet mixin-transformed bytes of the class, or null if the
+	 * class has to be loaded on demand.
+	 */
+	byte[] take(String name) {
+		if (stopped) {
+			return null;
+		}
+
+		takes.incrementAndGet();
+		Integer index = indices.get(name);
+
+		if (index == null) {
+			if (divergentLoads.incrementAndGet() >= DIVERGENCE_LIMIT) {
+				stop("the load order diverged");
+			}
+
+			return null;
+		}
+
+		divergentLoads.set(0);
+		byte[] ret = results.getAndSet(index, null);
+
+		synchronized (this) {
+			if (index >= position) {
+				position = index + 1;
+
+				for (int end = Math.min(position - WINDOW, order.length); evicted < end; evicted++) {
+					results.set(evicted, null);
+				}
+
+				notifyAll();
+			}
+		}
+
+		if (ret != null) {
+			hits.incrementAndGet();
+		}
+
+		if (index == order.length - 1) {
+			stop("the recorded order is exhausted");
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Records a class which was loaded from the class loader's URLs.
+	 */
+	void record(String name) {
+		boolean full;
+
+		synchronized (recorded) {
+			if (recorded.size() >= MAX_RECORDED) {
+				return;
+			}
+
+			recorded.add(name);
+			full = recorded.size() >= MAX_RECORDED;
+		}
+
+		if (full) {
+			save();
+		}
+	}
+
+	/**
+	 * Must be called when a URL is added, as previously fetched bytes may be stale.
+	 */
+	void invalidate() {
+		stop("a URL was added");
+	}
+
+	private void stop(String reason) {
+		synchronized (this) {
+			if (stopped) {
+				return;
+			}
+
+			stopped = true;
+
+			for (int i = evicted; i < order.length; i++) {
+				results.set(i, null);
+			}
+
+			notifyAll();
+		}
+
+		LOGGER.debug("Stopped class prefetching as %s, %d of %d loads were prefetched", reason, hits.get(), takes.get());
+	}
+
+	private void run() {
+		for (;;) {
+			int index;
+
+			synchronized (this) {
+				try {
+					while (!stopped && nextIndex < order.length && nextIndex >= position + WINDOW) {
+						wait();
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				if (stopped || nextIndex >= order.length) {
+					return;
+				}
+
+				index = nextIndex++;
+			}
+
+			byte[] bytes;
+
+			try {
+				bytes = fetcher.fetch(order[index]);
+			} catch (Throwable t) {
+				// loading the class on demand will report it properly
+				continue;
+			}
+
+			if (bytes != null) {
+				synchronized (this) {
+					if (!stopped && index >= evicted) {
+						results.set(index, bytes);
+					}
+				}
+			}
+		}
+	}
+
+	private void save() {
+		if (!saved.compareAndSet(false, true)) {
+			return;
+		}
+
+		List<String> names;
+
+		synchronized (recorded) {
+			names = new ArrayList<>(recorded);
+		}
+
+		if (names.isEmpty()) {
+			return;
+		}
+
+		try {
+			write(file, names);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write class load order to %s: %s", file, e);
+		}
+	}
+
+	private static List<String> read(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return Collections.emptyList();
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return Collections.emptyList();
+			}
+
+			List<String> ret = new ArrayList<>();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					ret.add(line);
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	private static void write(Path file, List<String> names) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+			writer.write(HEADER);
+			writer.newLine();
+
+			for (String name : names) {
+				writer.write(name);
+				writer.newLine();
+			}
+		}
+
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
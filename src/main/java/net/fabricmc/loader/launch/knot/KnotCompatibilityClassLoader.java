@@ -82,12 +82,18 @@ class KnotCompatibilityClassLoader extends URLClassLoader implements KnotClassLo
 	@Override
 	public void addURL(URL url) {
 		super.addURL(url);
+		delegate.onUrlAdded(url);
 	}
 
 	static {
 		registerAsParallelCapable();
 	}
 
+	@Override
+	public URL getResource(String name, boolean skipOriginalLoader) {
+		return skipOriginalLoader ? findResource(name) : getResource(name);
+	}
+
 	@Override
 	public InputStream getResourceAsStream(String classFile, boolean skipOriginalLoader) throws IOException {
 		if (skipOriginalLoader) {
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import net.fabricmc.loader.launch.common.FabricMixinBootstrap;
+import net.fabricmc.loader.launch.common.MixinTargetIndex;
+import org.spongepowered.asm.mixin.Mixins;
+import org.spongepowered.asm.mixin.extensibility.IMixinConfig;
+import org.spongepowered.asm.mixin.transformer.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Tells which classes Mixin has to see, so that all other classes can skip Mixin's
+ * transformer. The transformer only lets one thread in at a time, so this allows
+ * classes no mixin targets to be loaded concurrently.
+ *
+ * <p>Only the targets of all configurations and the classes in mixin packages, which Mixin
+ * either post-processes or refuses to load, go through it. The configurations are those
+ * registered when the transformer is created. The targets of indexed configurations come
+ * from the index built by {@link FabricMixinBootstrap} for the whole run. Those of other
+ * configurations are only taken from Mixin once it has selected and prepared them, which
+ * it does under the transformer's lock, so they are read under that lock too. Until then,
+ * every class goes through Mixin.</p>
+ */
+final class KnotMixinTargets {
+	/**
+	 * Mixin's side of the configurations, only accessed under the transformer's lock.
+	 */
+	interface Configs {
+		/**
+		 * @return The names of the configurations Mixin hasn't selected yet.
+		 */
+		Set<String> getPending();
+
+		/**
+		 * @return The targets of a selected configuration, or null if Mixin doesn't have it.
+		 */
+		Set<String> getTargets(String config);
+
+		String getMixinPackage(String config);
+	}
+
+	private static final class MixinConfigs implements Configs {
+		private final Map<String, IMixinConfig> configs = new HashMap<>();
+
+		MixinConfigs() {
+			for (Config config : Mixins.getConfigs()) {
+				configs.put(config.getName(), config.getConfig());
+			}
+		}
+
+		@Override
+		public Set<String> getPending() {
+			Set<String> ret = new HashSet<>();
+
+			for (Config config : Mixins.getConfigs()) {
+				ret.add(config.getName());
+			}
+
+			return ret;
+		}
+
+		@Override
+		public Set<String> getTargets(String config) {
+			IMixinConfig mixinConfig = configs.get(config);
+			return mixinConfig != null ? mixinConfig.getTargets() : null;
+		}
+
+		@Override
+		public String getMixinPackage(String config) {
+			IMixinConfig mixinConfig = configs.get(config);
+			return mixinConfig != null ? mixinConfig.getMixinPackage() : null;
+		}
+	}
+
+	private static final class State {
+		final Set<String> targets;
+		final List<String> mixinPackages;
+		final List<String> unresolved;
+
+		State(Set<String> targets, List<String> mixinPackages, List<String> unresolved) {
+			this.targets = targets;
+			this.mixinPackages = mixinPackages;
+			this.unresolved = unresolved;
+		}
+	}
+
+	private final boolean enabled;
+	private final LongAdder checked = new LongAdder();
+	private final LongAdder bypassed = new LongAdder();
+	private Object lock;
+	private Configs configs;
+	private volatile State state;
+
+	KnotMixinTargets() {
+		this(!Boolean.getBoolean("fabric.loader.disableMixinBypass"));
+	}
+
+	KnotMixinTargets(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Takes the configurations registered with Mixin so far, before any of them is selected.
+	 *
+	 * @param transformer The Mixin transformer, whose lock guards selecting configurations.
+	 */
+	void init(Object transformer) {
+		MixinTargetIndex index = FabricMixinBootstrap.getTargetIndex();
+
+		if (index != null) {
+			init(transformer, new MixinConfigs(), FabricMixinBootstrap.getConfigs(), index::getTargets, index::getMixinPackage);
+		} else {
+			init(transformer, new MixinConfigs(), FabricMixinBootstrap.getConfigs(), (name) -> null, (name) -> null);
+		}
+	}
+
+	/**
+	 * @param indexedTargets The indexed targets of a configuration, or null if it isn't indexed.
+	 */
+	void init(Object lock, Configs configs, List<String> registered, Function<String, Set<String>> indexedTargets, Function<String, String> indexedPackages) {
+		synchronized (lock) {
+			Set<String> names = new LinkedHashSet<>(registered);
+			names.addAll(configs.getPending());
+
+			Set<String> targets = new HashSet<>();
+			List<String> mixinPackages = new ArrayList<>();
+			List<String> unresolved = new ArrayList<>();
+
+			for (String name : names) {
+				Set<String> configTargets = indexedTargets.apply(name);
+
+				if (configTargets != null) {
+					addTargets(configTargets, indexedPackages.apply(name), targets, mixinPackages);
+				} else {
+					unresolved.add(name);
+				}
+			}
+
+			this.lock = lock;
+			this.configs = configs;
+			this.state = new State(targets, mixinPackages, unresolved);
+		}
+	}
+
+	/**
+	 * @return Whether the class has to go through Mixin's transformer.
+	 */
+	boolean isRequired(String name) {
+		if (!enabled) {
+			return true;
+		}
+
+		checked.increment();
+		State state = this.state;
+
+		if (state == null) {
+			return true;
+		}
+
+		if (!state.unresolved.isEmpty()) {
+			state = resolve();
+
+			if (!state.unresolved.isEmpty()) {
+				return true;
+			}
+		}
+
+		if (state.targets.contains(name)) {
+			return true;
+		}
+
+		for (String pkg : state.mixinPackages) {
+			if (name.startsWith(pkg)) {
+				return true;
+			}
+		}
+
+		bypassed.increment();
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d of %d classes skipped Mixin", bypassed.sum(), checked.sum());
+	}
+
+	/**
+	 * Takes the targets of the unindexed configurations Mixin has selected and prepared since.
+	 */
+	private State resolve() {
+		synchronized (lock) {
+			State state = this.state;
+			Set<String> pending = configs.getPending();
+			Set<String> targets = null;
+			List<String> mixinPackages = null;
+			List<String> unresolved = new ArrayList<>();
+
+			for (String name : state.unresolved) {
+				Set<String> configTargets = pending.contains(name) ? null : configs.getTargets(name);
+
+				if (configTargets == null) {
+					unresolved.add(name);
+					continue;
+				}
+
+				if (targets == null) {
+					targets = new HashSet<>(state.targets);
+					mixinPackages = new ArrayList<>(state.mixinPackages);
+				}
+
+				addTargets(configTargets, configs.getMixinPackage(name), targets, mixinPackages);
+			}
+
+			if (targets == null) {
+				return state;
+			}
+
+			return this.state = new State(targets, mixinPackages, unresolved.isEmpty() ? Collections.emptyList() : unresolved);
+		}
+	}
+
+	private static void addTargets(Set<String> configTargets, String mixinPackage, Set<String> targets, List<String> mixinPackages) {
+		targets.addAll(configTargets);
+
+		if (mixinPackage != null && !mixinPackage.isEmpty()) {
+			mixinPackages.add(mixinPackage);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import net.fabricmc.loader.util.JarEntryIndex;
+import net.fabricmc.loader.util.UrlConversionException;
+import net.fabricmc.loader.util.UrlUtil;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Package -> JAR index over the URLs added to a Knot class loader, so resource lookups
+ * only consider the JARs which contain the resource's package and misses don't open
+ * any JAR at all. Directories are checked directly, keeping the order URLs were added in.
+ *
+ * <p>URLs are indexed through their {@link Path}, so JARs on other file systems, like
+ * the in-memory one nested JARs are extracted to, are indexed as well. URLs which can't
+ * be indexed at all are searched through a URL class loader of their own, in their
+ * place in the order.</p>
+ */
+final class KnotResourceIndex {
+	private static final class Source {
+		final int order;
+		final URL url;
+		final Path path;
+		final JarEntryIndex jar;
+		final URLClassLoader fallback;
+
+		Source(int order, URL url, Path path, JarEntryIndex jar, URLClassLoader fallback) {
+			this.order = order;
+			this.url = url;
+			this.path = path;
+			this.jar = jar;
+			this.fallback = fallback;
+		}
+
+		URL getResource(String name) throws MalformedURLException, URISyntaxException {
+			if (fallback != null) {
+				return fallback.findResource(name);
+			} else if (jar != null) {
+				if (!jar.contains(name)) {
+					return null;
+				}
+
+				return new URL("jar:" + url.toExternalForm() + "!/" + encode(name));
+			} else if (Files.isRegularFile(path.resolve(name))) {
+				return new URL(url, encode(name));
+			} else {
+				return null;
+			}
+		}
+
+		private static String encode(String name) throws URISyntaxException {
+			return new URI(null, null, name, null).getRawPath();
+		}
+	}
+
+	private static final List<Source> NO_SOURCES = Collections.emptyList();
+
+	private final Map<String, List<Source>> packages = new ConcurrentHashMap<>();
+	/**
+	 * Sources which are searched for every name: directories and URLs which couldn't be indexed.
+	 */
+	private final List<Source> unindexed = new CopyOnWriteArrayList<>();
+	private final Set<URL> added = new HashSet<>();
+	private int sourceCount;
+
+	synchronized void add(URL url) {
+		if (!added.add(url)) {
+			return;
+		}
+
+		int order = sourceCount++;
+
+		try {
+			Path path = UrlUtil.asPath(url);
+
+			// like URLClassLoader, only URLs ending with a slash are directories
+			if (url.getFile().endsWith("/")) {
+				if (Files.isDirectory(path)) {
+					unindexed.add(new Source(order, url, path, null, null));
+				}
+			} else if (Files.isRegularFile(path)) {
+				JarEntryIndex jar = JarEntryIndex.get(path);
+				Source source = new Source(order, url, path, jar, null);
+
+				for (String pkg : getPackages(jar)) {
+					packages.computeIfAbsent(pkg, (k) -> new CopyOnWriteArrayList<>()).add(source);
+				}
+
+				// the URL class loader searches JARs referenced by the manifest as well
+				for (String ref : jar.getManifestClassPath()) {
+					add(new URL(url, ref));
+				}
+			}
+		} catch (IOException | UrlConversionException | RuntimeException e) {
+			// no file system for the URL or not a readable JAR, leave it to a URL class loader
+			unindexed.add(new Source(order, url, null, null, new URLClassLoader(new URL[] { url }, null)));
+		}
+	}
+
+	/**
+	 * @return The first matching resource, or null.
+	 */
+	URL findResource(String name) {
+		List<URL> ret = find(name, true);
+		return ret.isEmpty() ? null : ret.get(0);
+	}
+
+	/**
+	 * @return All matching resources, in the order the URL class loader would return them.
+	 */
+	List<URL> findResources(String name) {
+		return find(name, false);
+	}
+
+	private List<URL> find(String name, boolean firstOnly) {
+		List<Source> jars = packages.getOrDefault(getPackage(name), NO_SOURCES);
+		List<Source> others = unindexed;
+
+		if (jars.isEmpty() && others.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<URL> ret = new ArrayList<>(1);
+		int jarPos = 0;
+		int otherPos = 0;
+
+		try {
+			while (jarPos < jars.size() || otherPos < others.size()) {
+				Source source;
+
+				if (otherPos >= others.size() || jarPos < jars.size() && jars.get(jarPos).order < others.get(otherPos).order) {
+					source = jars.get(jarPos++);
+				} else {
+					source = others.get(otherPos++);
+				}
+
+				URL url = source.getResource(name);
+
+				if (url != null) {
+					ret.add(url);
+
+					if (firstOnly) {
+						break;
+					}
+				}
+			}
+		} catch (MalformedURLException | URISyntaxException e) {
+			// names which can't form a URL can't be found by the URL class loader either
+		}
+
+		return ret;
+	}
+
+	private static List<String> getPackages(JarEntryIndex jar) {
+		return jar.getEntries().stream()
+			.filter((name) -> !name.endsWith("/"))
+			.map(KnotResourceIndex::getPackage)
+			.distinct()
+			.collect(Collectors.toList());
+	}
+
+	private static String getPackage(String name) {
+		int pos = name.lastIndexOf('/');
+		return pos > 0 ? name.substring(0, pos) : "";
+	}
+}
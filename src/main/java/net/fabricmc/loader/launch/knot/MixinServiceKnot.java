@@ -17,7 +17,9 @@
 package net.fabricmc.loader.launch.knot;
 
 import com.google.common.collect.ImmutableList;
+import net.fabricmc.loader.launch.common.FabricLauncher;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
+import net.fabricmc.loader.launch.common.FabricMixinBootstrap;
 import org.spongepowered.asm.lib.ClassReader;
 import org.spongepowered.asm.lib.tree.ClassNode;
 import org.spongepowered.asm.mixin.MixinEnvironment;
@@ -57,6 +59,13 @@ public class MixinServiceKnot implements IMixinService, IClassProvider, IClassBy
 
 	@Override
 	public ClassNode getClassNode(String name) throws ClassNotFoundException, IOException {
+		FabricLauncher launcher = FabricLauncherBase.getLauncher();
+
+		// shares the cached class bytes with class loading
+		if (launcher instanceof Knot) {
+			return ((Knot) launcher).getClassDelegate().getClassNode(name);
+		}
+
 		ClassReader reader = new ClassReader(getClassBytes(name, true /* irrelevant, at least right now */));
 		ClassNode node = new ClassNode();
 		reader.accept(node, 0);
@@ -141,6 +150,11 @@ public class MixinServiceKnot implements IMixinService, IClassProvider, IClassBy
 
 	@Override
 	public InputStream getResourceAsStream(String name) {
+		InputStream preloaded = FabricMixinBootstrap.getPreloadedResource(name);
+		if (preloaded != null) {
+			return preloaded;
+		}
+
 		return FabricLauncherBase.getLauncher().getResourceAsStream(name);
 	}
 
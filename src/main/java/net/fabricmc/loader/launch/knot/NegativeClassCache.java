@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.launch.knot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU set of class names known to be absent from the URLs of a Knot class
+ * loader. It has to be invalidated whenever a URL is added.
+ *
+ * <p>Entries are added together with the generation read before the lookup which
+ * missed, so a miss which raced with an added URL is not recorded.</p>
+ */
+final class NegativeClassCache {
+	private final int capacity;
+	private final Map<String, Boolean> names;
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private volatile long generation;
+
+	NegativeClassCache(int capacity) {
+		this.capacity = capacity;
+		this.names = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size() > NegativeClassCache.this.capacity;
+			}
+		};
+	}
+
+	boolean contains(String name) {
+		if (capacity <= 0) {
+			return false;
+		}
+
+		lookups.increment();
+		boolean ret;
+
+		synchronized (names) {
+			ret = names.containsKey(name);
+		}
+
+		if (ret) {
+			hits.increment();
+		}
+
+		return ret;
+	}
+
+	long getGeneration() {
+		return generation;
+	}
+
+	void add(String name, long lookupGeneration) {
+		if (capacity <= 0) {
+			return;
+		}
+
+		synchronized (names) {
+			if (generation == lookupGeneration) {
+				names.put(name, Boolean.TRUE);
+			}
+		}
+	}
+
+	void invalidate() {
+		synchronized (names) {
+			generation++;
+			names.clear();
+		}
+	}
+
+	long getLookupCount() {
+		return lookups.sum();
+	}
+
+	long getHitCount() {
+		return hits.sum();
+	}
+
+	double getHitRate() {
+		long lookupCount = getLookupCount();
+		return lookupCount > 0 ? (double) getHitCount() / lookupCount : 0;
+	}
+
+	@Override
+	public String toString() {
+		int size;
+
+		synchronized (names) {
+			size = names.size();
+		}
+
+		return String.format("%d/%d hits (%.1f%%), %d of %d entries", getHitCount(), getLookupCount(), getHitRate() * 100, size, capacity);
+	}
+}
@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.metadata;
 
+import com.google.gson.JsonElement;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.metadata.ModMetadata;
 import org.apache.logging.log4j.Logger;
@@ -42,5 +43,15 @@ public interface LoaderModMetadata extends ModMetadata {
 	List<EntrypointMetadata> getEntrypoints(String type);
 	Collection<String> getEntrypointKeys();
 
+	/**
+	 * Whether the mod's entrypoints may be created and run on a worker thread, concurrently
+	 * with those of mods it doesn't depend on. Declared with the custom value
+	 * {@code "fabricloader:parallel_init": true}.
+	 */
+	default boolean isParallelInitSafe() {
+		JsonElement element = getCustomElement("fabricloader:parallel_init");
+		return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isBoolean() && element.getAsBoolean();
+	}
+
 	void emitFormatWarnings(Logger logger);
 }
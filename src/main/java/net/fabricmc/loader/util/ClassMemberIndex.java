@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declared members of a class, indexed by name. Built once per class on first use,
+ * so resolving several entrypoints of the same class only reflects over it once.
+ */
+public final class ClassMemberIndex {
+	private static final ClassValue<ClassMemberIndex> INDICES = new ClassValue<ClassMemberIndex>() {
+		@Override
+		protected ClassMemberIndex computeValue(Class<?> type) {
+			return new ClassMemberIndex(type);
+		}
+	};
+
+	private final Map<String, List<Method>> methods;
+	private final Map<String, Field> fields;
+	private final Constructor<?> defaultConstructor;
+
+	private ClassMemberIndex(Class<?> c) {
+		Map<String, List<Method>> methods = new HashMap<>();
+		Map<String, Field> fields = new HashMap<>();
+		Constructor<?> defaultConstructor = null;
+
+		for (Method m : c.getDeclaredMethods()) {
+			methods.computeIfAbsent(m.getName(), (k) -> new ArrayList<>(1)).add(m);
+		}
+
+		for (Field f : c.getDeclaredFields()) {
+			fields.put(f.getName(), f);
+		}
+
+		for (Constructor<?> constructor : c.getDeclaredConstructors()) {
+			if (constructor.getParameterCount() == 0) {
+				defaultConstructor = constructor;
+				break;
+			}
+		}
+
+		for (Map.Entry<String, List<Method>> entry : methods.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+
+		this.methods = methods;
+		this.fields = fields;
+		this.defaultConstructor = defaultConstructor;
+	}
+
+	public static ClassMemberIndex get(Class<?> c) {
+		return INDICES.get(c);
+	}
+
+	/**
+	 * @return All declared methods of the given name, or an empty list.
+	 */
+	public List<Method> getMethods(String name) {
+		return methods.getOrDefault(name, Collections.emptyList());
+	}
+
+	/**
+	 * @return The declared field of the given name, or null.
+	 */
+	public Field getField(String name) {
+		return fields.get(name);
+	}
+
+	/**
+	 * @return The declared no-argument constructor, or null.
+	 */
+	public Constructor<?> getDefaultConstructor() {
+		return defaultConstructor;
+	}
+}
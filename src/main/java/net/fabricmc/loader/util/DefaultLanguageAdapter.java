@@ -21,14 +21,42 @@ import net.fabricmc.loader.api.LanguageAdapterException;
 import net.fabricmc.loader.api.ModContainer;
 import net.fabricmc.loader.launch.common.FabricLauncherBase;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public final class DefaultLanguageAdapter implements LanguageAdapter {
 	public static final DefaultLanguageAdapter INSTANCE = new DefaultLanguageAdapter();
 
+	private static final Method privateLookupIn;
+	private static final Constructor<MethodHandles.Lookup> lookupConstructor;
+
+	static {
+		Method method = null;
+		Constructor<MethodHandles.Lookup> constructor = null;
+
+		try {
+			// Java 9+
+			method = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+		} catch (NoSuchMethodException e) {
+			try {
+				// Java 8
+				constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+				constructor.setAccessible(true);
+			} catch (ReflectiveOperationException | RuntimeException e2) {
+				constructor = null;
+			}
+		}
+
+		privateLookupIn = method;
+		lookupConstructor = constructor;
+	}
+
 	private DefaultLanguageAdapter() {
 
 	}
@@ -49,28 +77,17 @@ public final class DefaultLanguageAdapter implements LanguageAdapter {
 
 		if (methodSplit.length == 1) {
 			if (type.isAssignableFrom(c)) {
-				try {
-					//noinspection unchecked
-					return (T) c.getDeclaredConstructor().newInstance();
-				} catch (Exception e) {
-					throw new LanguageAdapterException(e);
-				}
+				//noinspection unchecked
+				return (T) newInstance(c);
 			} else {
 				throw new LanguageAdapterException("Class " + c.getName() + " cannot be cast to " + type.getName() + "!");
 			}
 		} else /* length == 2 */ {
-			List<Method> methodList = new ArrayList<>();
-
-			for (Method m : c.getDeclaredMethods()) {
-				if (!(m.getName().equals(methodSplit[1]))) {
-					continue;
-				}
+			ClassMemberIndex index = ClassMemberIndex.get(c);
+			List<Method> methodList = index.getMethods(methodSplit[1]);
+			Field field = index.getField(methodSplit[1]);
 
-				methodList.add(m);
-			}
-
-			try {
-				Field field = c.getDeclaredField(methodSplit[1]);
+			if (field != null) {
 				Class<?> fType = field.getType();
 				if ((field.getModifiers() & Modifier.STATIC) == 0) {
 					throw new LanguageAdapterException("Field " + value + " must be static!");
@@ -84,12 +101,12 @@ public final class DefaultLanguageAdapter implements LanguageAdapter {
 					throw new LanguageAdapterException("Field " + value + " cannot be cast to " + type.getName() + "!");
 				}
 
-				//noinspection unchecked
-				return (T) field.get(null);
-			} catch (NoSuchFieldException e) {
-				// ignore
-			} catch (IllegalAccessException e) {
-				throw new LanguageAdapterException("Field " + value + " cannot be accessed!", e);
+				try {
+					//noinspection unchecked
+					return (T) field.get(null);
+				} catch (IllegalAccessException e) {
+					throw new LanguageAdapterException("Field " + value + " cannot be accessed!", e);
+				}
 			}
 
 			if (!type.isInterface()) {
@@ -106,22 +123,141 @@ public final class DefaultLanguageAdapter implements LanguageAdapter {
 			Object object = null;
 
 			if ((targetMethod.getModifiers() & Modifier.STATIC) == 0) {
-				try {
-					object = c.getDeclaredConstructor().newInstance();
-				} catch (Exception e) {
-					throw new LanguageAdapterException(e);
-				}
+				object = newInstance(c);
 			}
 
 			final Object targetObject = object;
 
-			//noinspection unchecked
-			return (T) Proxy.newProxyInstance(FabricLauncherBase.getLauncher().getTargetClassLoader(), new Class[] { type }, new InvocationHandler() {
-				@Override
-				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-					return targetMethod.invoke(targetObject, args);
-				}
-			});
+			T ret = createLambda(c, targetMethod, targetObject, type);
+			if (ret != null) {
+				return ret;
+			}
+
+			return createProxy(targetMethod, targetObject, type, FabricLauncherBase.getLauncher().getTargetClassLoader());
+		}
+	}
+
+	static <T> T createProxy(Method targetMethod, Object targetObject, Class<T> type, ClassLoader classLoader) {
+		//noinspection unchecked
+		return (T) Proxy.newProxyInstance(classLoader, new Class[] { type }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return targetMethod.invoke(targetObject, args);
+			}
+		});
+	}
+
+	private static Object newInstance(Class<?> c) throws LanguageAdapterException {
+		Constructor<?> constructor = ClassMemberIndex.get(c).getDefaultConstructor();
+		if (constructor == null) {
+			throw new LanguageAdapterException("Could not find constructor for class " + c.getName() + "!");
+		}
+
+		try {
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new LanguageAdapterException(e);
+		}
+	}
+
+	/**
+	 * Spins a real implementation of the interface which calls the target method directly,
+	 * the same way the JVM implements a method reference.
+	 *
+	 * @return The implementation, or null if that is not possible and a proxy has to be used.
+	 */
+	static <T> T createLambda(Class<?> c, Method targetMethod, Object targetObject, Class<T> type) {
+		Method samMethod = getSingleAbstractMethod(type);
+		if (samMethod == null) {
+			return null;
+		}
+
+		try {
+			MethodHandles.Lookup lookup = getPrivateLookup(c);
+			if (lookup == null) {
+				return null;
+			}
+
+			MethodHandle target = lookup.unreflect(targetMethod);
+			MethodType samType = MethodType.methodType(samMethod.getReturnType(), samMethod.getParameterTypes());
+			MethodType factoryType = targetObject != null ? MethodType.methodType(type, c) : MethodType.methodType(type);
+			CallSite site = LambdaMetafactory.metafactory(lookup, samMethod.getName(), factoryType, samType, target, getInstantiatedType(samType, targetMethod));
+
+			return type.cast(targetObject != null ? site.getTarget().invoke(targetObject) : site.getTarget().invoke());
+		} catch (Throwable t) {
+			// incompatible signature or no access to the lookup, fall back to a proxy
+			return null;
+		}
+	}
+
+	/**
+	 * Narrows the reference types of the interface method to those of the target method,
+	 * like a generic interface would be instantiated for a method reference.
+	 */
+	private static MethodType getInstantiatedType(MethodType samType, Method targetMethod) {
+		Class<?>[] targetParams = targetMethod.getParameterTypes();
+		if (targetParams.length != samType.parameterCount()) {
+			return samType;
+		}
+
+		MethodType ret = samType;
+
+		for (int i = 0; i < targetParams.length; i++) {
+			ret = ret.changeParameterType(i, narrow(samType.parameterType(i), targetParams[i]));
+		}
+
+		if (samType.returnType() != void.class) {
+			ret = ret.changeReturnType(narrow(samType.returnType(), targetMethod.getReturnType()));
+		}
+
+		return ret;
+	}
+
+	private static Class<?> narrow(Class<?> type, Class<?> target) {
+		return !type.isPrimitive() && !target.isPrimitive() && type.isAssignableFrom(target) ? target : type;
+	}
+
+	private static Method getSingleAbstractMethod(Class<?> type) {
+		Method ret = null;
+
+		for (Method m : type.getMethods()) {
+			if (!Modifier.isAbstract(m.getModifiers()) || isObjectMethod(m)) {
+				continue;
+			}
+
+			if (ret != null && !(ret.getName().equals(m.getName()) && Arrays.equals(ret.getParameterTypes(), m.getParameterTypes()))) {
+				return null;
+			}
+
+			ret = m;
+		}
+
+		return ret;
+	}
+
+	private static boolean isObjectMethod(Method m) {
+		for (Method objectMethod : Object.class.getMethods()) {
+			if (objectMethod.getName().equals(m.getName()) && Arrays.equals(objectMethod.getParameterTypes(), m.getParameterTypes())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * LambdaMetafactory needs a lookup with private access to the class the implementation
+	 * gets defined next to, which has to be the target class so it can see the mod's classes.
+	 * On newer Java versions that requires the target to be in the same class loader as the
+	 * loader itself, which is the case under Knot.
+	 */
+	static MethodHandles.Lookup getPrivateLookup(Class<?> c) throws ReflectiveOperationException {
+		if (privateLookupIn != null) {
+			return (MethodHandles.Lookup) privateLookupIn.invoke(null, c, MethodHandles.lookup());
+		} else if (lookupConstructor != null) {
+			return lookupConstructor.newInstance(c, MethodHandles.Lookup.PUBLIC | MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED | MethodHandles.Lookup.PACKAGE);
+		} else {
+			return null;
 		}
 	}
 }
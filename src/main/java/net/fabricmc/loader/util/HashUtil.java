@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class HashUtil {
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private HashUtil() {
+
+	}
+
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static void update(MessageDigest digest, String s) {
+		byte[] bytes = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+		digest.update((byte) (bytes.length >>> 24));
+		digest.update((byte) (bytes.length >>> 16));
+		digest.update((byte) (bytes.length >>> 8));
+		digest.update((byte) bytes.length);
+		digest.update(bytes);
+	}
+
+	public static void update(MessageDigest digest, Path file) throws IOException {
+		byte[] buffer = new byte[65536];
+
+		try (InputStream stream = Files.newInputStream(file)) {
+			int len;
+			while ((len = stream.read(buffer)) > 0) {
+				digest.update(buffer, 0, len);
+			}
+		}
+	}
+
+	public static String hashFile(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		update(digest, file);
+		return toHex(digest.digest());
+	}
+
+	public static String hashBytes(byte[] data) {
+		return toHex(newDigest().digest(data));
+	}
+
+	public static String toHex(byte[] hash) {
+		char[] chars = new char[hash.length * 2];
+
+		for (int i = 0; i < hash.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(hash[i] >>> 4) & 0xF];
+			chars[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+		}
+
+		return new String(chars);
+	}
+}
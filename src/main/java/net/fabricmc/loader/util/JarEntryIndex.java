@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The entry names of a JAR, read once from its central directory and shared by
+ * everything which probes the same file, so that lookups are hash lookups instead
+ * of opening the JAR again.
+ *
+ * <p>An index is only reused while the JAR's size, modification time and file key
+ * are unchanged, so a JAR replaced at the same path, such as a freshly remapped one,
+ * is indexed again.</p>
+ */
+public final class JarEntryIndex {
+	private static final Map<Path, JarEntryIndex> INDICES = new ConcurrentHashMap<>();
+
+	private final Path path;
+	private final long size;
+	private final FileTime lastModified;
+	private final Object fileKey;
+	private final Set<String> entries;
+	private final List<String> manifestClassPath;
+
+	private JarEntryIndex(Path path, BasicFileAttributes attributes) throws IOException {
+		Set<String> entries = new HashSet<>();
+		List<String> manifestClassPath = Collections.emptyList();
+
+		Manifest manifest = null;
+
+		if (isDefaultFileSystem(path)) {
+			try (JarFile jar = new JarFile(path.toFile(), false)) {
+				for (Enumeration<JarEntry> it = jar.entries(); it.hasMoreElements(); ) {
+					entries.add(it.nextElement().getName());
+				}
+
+				manifest = entries.contains(JarFile.MANIFEST_NAME) ? jar.getManifest() : null;
+			}
+		} else {
+			// e.g. JARs nested in mods, extracted to an in-memory file system; these have
+			// no file to read the central directory from, so stream the whole JAR instead
+			try (JarInputStream jar = new JarInputStream(Files.newInputStream(path), false)) {
+				for (JarEntry entry; (entry = jar.getNextJarEntry()) != null; ) {
+					entries.add(entry.getName());
+				}
+
+				manifest = jar.getManifest();
+
+				if (manifest != null) {
+					entries.add(JarFile.MANIFEST_NAME);
+				}
+			}
+		}
+
+		String classPath = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) : null;
+
+		if (classPath != null) {
+			manifestClassPath = Collections.unmodifiableList(Arrays.asList(classPath.trim().split("\\s+")));
+		}
+
+		this.path = path;
+		this.size = attributes.size();
+		this.lastModified = attributes.lastModifiedTime();
+		this.fileKey = attributes.fileKey();
+		this.entries = Collections.unmodifiableSet(entries);
+		this.manifestClassPath = manifestClassPath;
+	}
+
+	/**
+	 * @return The index of the given JAR, built on first use and whenever the JAR changed since.
+	 */
+	public static JarEntryIndex get(Path jar) throws IOException {
+		Path path = jar.toAbsolutePath().normalize();
+		// read before indexing, so a change while indexing makes the next lookup index again
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		JarEntryIndex ret = INDICES.get(path);
+
+		if (ret != null && ret.matches(attributes)) {
+			return ret;
+		}
+
+		try {
+			return INDICES.compute(path, (p, old) -> {
+				if (old != null && old.matches(attributes)) {
+					return old;
+				}
+
+				try {
+					return new JarEntryIndex(p, attributes);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public Set<String> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return The relative URLs of the manifest's Class-Path attribute.
+	 */
+	public List<String> getManifestClassPath() {
+		return manifestClassPath;
+	}
+
+	public boolean contains(String name) {
+		return entries.contains(name);
+	}
+
+	/**
+	 * @return The contents of the entry, or null if the JAR doesn't contain it.
+	 */
+	public byte[] read(String name) throws IOException {
+		if (!entries.contains(name)) {
+			return null;
+		}
+
+		if (!isDefaultFileSystem(path)) {
+			try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path))) {
+				for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+					if (entry.getName().equals(name)) {
+						return readAll(zip, entry);
+					}
+				}
+
+				return null;
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			ZipEntry entry = zip.getEntry(name);
+			if (entry == null) {
+				return null;
+			}
+
+			try (InputStream stream = zip.getInputStream(entry)) {
+				return readAll(stream, entry);
+			}
+		}
+	}
+
+	private boolean matches(BasicFileAttributes attributes) {
+		return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime()) && Objects.equals(fileKey, attributes.fileKey());
+	}
+
+	private static byte[] readAll(InputStream stream, ZipEntry entry) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 8192);
+		byte[] buffer = new byte[8192];
+		int len;
+
+		while ((len = stream.read(buffer)) > 0) {
+			out.write(buffer, 0, len);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static boolean isDefaultFileSystem(Path path) {
+		return path.getFileSystem() == FileSystems.getDefault();
+	}
+}
@@ -24,33 +24,29 @@ import java.util.*;
 
 public class MixinIntermediaryDevRemapper extends MixinMappingsRemapper {
 	private final Set<String> allPossibleClassNames;
-	private final Map<String, Set<String>> nameDescFieldLookup, nameDescMethodLookup;
-
-	private static String getNameDescKey(EntryTriple triple) {
-		return triple.getName() + ";;" + triple.getDesc();
-	}
+	private final NameDescLookup nameDescFieldLookup, nameDescMethodLookup;
 
 	public MixinIntermediaryDevRemapper(Mappings mappings, String from, String to) {
 		super(mappings, from, to);
 
 		// I sincerely hate that I have to do this.
 
-		nameDescFieldLookup = new HashMap<>();
-		nameDescMethodLookup = new HashMap<>();
+		nameDescFieldLookup = new NameDescLookup();
+		nameDescMethodLookup = new NameDescLookup();
 		allPossibleClassNames = new HashSet<>();
 
 		for (FieldEntry entry : mappings.getFieldEntries()) {
 			EntryTriple tripleFrom = entry.get(from);
 			EntryTriple tripleTo = entry.get(to);
 
-			nameDescFieldLookup.computeIfAbsent(getNameDescKey(tripleFrom), (a) -> new HashSet<>()).add(tripleTo.getName());
+			nameDescFieldLookup.put(tripleFrom.getName(), tripleFrom.getDesc(), tripleTo.getName());
 		}
 
 		for (MethodEntry entry : mappings.getMethodEntries()) {
 			EntryTriple tripleFrom = entry.get(from);
 			EntryTriple tripleTo = entry.get(to);
 
-			nameDescMethodLookup.computeIfAbsent(getNameDescKey(tripleFrom), (a) -> new HashSet<>()).add(tripleTo.getName());
+			nameDescMethodLookup.put(tripleFrom.getName(), tripleFrom.getDesc(), tripleTo.getName());
 		}
 
 		for (ClassEntry entry : mappings.getClassEntries()) {
@@ -59,7 +55,7 @@ public class MixinIntermediaryDevRemapper extends MixinMappingsRemapper {
 		}
 	}
 
-	private void throwAmbiguousLookup(String type, String name, String desc, Set<String> values) {
+	private void throwAmbiguousLookup(String type, String name, String desc, String[] values) {
 		StringBuilder builder = new StringBuilder("Ambiguous Mixin " + type + " lookup: " + name + " " + desc + " -> ");
 		int i = 0;
 		for (String s : values) {
@@ -96,14 +92,12 @@ public class MixinIntermediaryDevRemapper extends MixinMappingsRemapper {
 	public String mapMethodName(String owner, String name, String desc) {
 		// handle unambiguous values early
 		if (owner == null || allPossibleClassNames.contains(owner)) {
-			Set<String> values = nameDescMethodLookup.get(name + ";;" + desc);
-			if (values != null && !values.isEmpty()) {
-				if (values.size() > 1) {
-					if (owner == null) {
-						throwAmbiguousLookup("method", name, desc, values);
-					}
-				} else {
-					return values.iterator().next();
+			Object values = nameDescMethodLookup.get(name, desc);
+			if (values instanceof String) {
+				return (String) values;
+			} else if (values != null) {
+				if (owner == null) {
+					throwAmbiguousLookup("method", name, desc, (String[]) values);
 				}
 			} else if (owner == null) {
 				return name;
@@ -159,14 +153,12 @@ public class MixinIntermediaryDevRemapper extends MixinMappingsRemapper {
 	public String mapFieldName(String owner, String name, String desc) {
 		// handle unambiguous values early
 		if (owner == null || allPossibleClassNames.contains(owner)) {
-			Set<String> values = nameDescFieldLookup.get(name + ";;" + desc);
-			if (values != null && !values.isEmpty()) {
-				if (values.size() > 1) {
-					if (owner == null) {
-						throwAmbiguousLookup("field", name, desc, values);
-					}
-				} else {
-					return values.iterator().next();
+			Object values = nameDescFieldLookup.get(name, desc);
+			if (values instanceof String) {
+				return (String) values;
+			} else if (values != null) {
+				if (owner == null) {
+					throwAmbiguousLookup("field", name, desc, (String[]) values);
 				}
 			} else if (owner == null) {
 				return name;
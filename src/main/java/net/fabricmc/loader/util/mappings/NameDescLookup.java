@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.util.mappings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open-addressing (name, desc) -> mapped name table.
+ *
+ * <p>Names and descriptors are interned into int IDs, which are packed into
+ * a single long key, so lookups do not allocate. Values are either a single
+ * String or, for ambiguous keys, a String[] of all distinct mapped names.</p>
+ */
+final class NameDescLookup {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final Map<String, Integer> nameIds = new HashMap<>();
+	private final Map<String, Integer> descIds = new HashMap<>();
+	// 0 marks an empty slot; IDs are stored 1-based
+	private long[] keys = new long[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int size;
+
+	void put(String name, String desc, String value) {
+		long key = pack(intern(nameIds, name), intern(descIds, desc));
+		int slot = findSlot(keys, key);
+
+		if (keys[slot] == 0) {
+			keys[slot] = key;
+			values[slot] = value;
+
+			if (++size * 2 > keys.length) {
+				rehash();
+			}
+		} else {
+			Object old = values[slot];
+
+			if (old instanceof String) {
+				if (!old.equals(value)) {
+					values[slot] = new String[] { (String) old, value };
+				}
+			} else {
+				String[] oldArray = (String[]) old;
+
+				for (String s : oldArray) {
+					if (s.equals(value)) {
+						return;
+					}
+				}
+
+				String[] newArray = Arrays.copyOf(oldArray, oldArray.length + 1);
+				newArray[oldArray.length] = value;
+				values[slot] = newArray;
+			}
+		}
+	}
+
+	/**
+	 * @return null if there is no mapping, a String if the mapping is unique,
+	 * or a String[] of all candidates if it is ambiguous.
+	 */
+	Object get(String name, String desc) {
+		Integer nameId = nameIds.get(name);
+		if (nameId == null) {
+			return null;
+		}
+
+		Integer descId = descIds.get(desc);
+		if (descId == null) {
+			return null;
+		}
+
+		long key = pack(nameId, descId);
+		int slot = findSlot(keys, key);
+		return keys[slot] == key ? values[slot] : null;
+	}
+
+	private static int intern(Map<String, Integer> ids, String s) {
+		Integer id = ids.get(s);
+
+		if (id == null) {
+			id = ids.size() + 1;
+			ids.put(s, id);
+		}
+
+		return id;
+	}
+
+	private static long pack(int nameId, int descId) {
+		return ((long) nameId << 32) | (descId & 0xFFFFFFFFL);
+	}
+
+	private static int findSlot(long[] keys, long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+
+		while (keys[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = findSlot(keys, oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
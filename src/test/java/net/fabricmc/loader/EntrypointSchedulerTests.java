@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader;
+
+import net.fabricmc.loader.api.EntrypointException;
+import net.fabricmc.loader.metadata.ModMetadataParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EntrypointSchedulerTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	static ModContainer createMod(String id, boolean parallel, String... depends) {
+		StringBuilder json = new StringBuilder("{\"schemaVersion\": 1, \"id\": \"" + id + "\", \"version\": \"1.0.0\", \"depends\": {");
+
+		for (int i = 0; i < depends.length; i++) {
+			json.append(i > 0 ? ", " : "").append('"').append(depends[i]).append("\": \"*\"");
+		}
+
+		json.append("}, \"custom\": {\"fabricloader:parallel_init\": ").append(parallel).append("}}");
+		return new ModContainer(ModMetadataParser.getMods(FabricLoader.INSTANCE, new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)))[0], null);
+	}
+
+	private static final class TestEntry implements EntrypointStorage.Entry {
+		final ModContainer mod;
+		final boolean fail;
+
+		TestEntry(ModContainer mod, boolean fail) {
+			this.mod = mod;
+			this.fail = fail;
+		}
+
+		@Override
+		public <T> T getOrCreate(Class<T> type) throws Exception {
+			if (fail) {
+				throw new Exception("Creation of " + mod.getInfo().getId() + " failed");
+			}
+
+			return type.cast(mod.getInfo().getId());
+		}
+
+		@Override
+		public ModContainer getModContainer() {
+			return mod;
+		}
+	}
+
+	private static Map<String, ModContainer> createModMap(ModContainer... mods) {
+		Map<String, ModContainer> ret = new HashMap<>();
+
+		for (ModContainer mod : mods) {
+			ret.put(mod.getInfo().getId(), mod);
+		}
+
+		return ret;
+	}
+
+	public static void main(String[] args) throws Exception {
+		// Test: dependencies finish before their dependents, on and off the pool.
+		for (int run = 0; run < 20; run++) {
+			ModContainer a = createMod("a", true);
+			ModContainer b = createMod("b", true, "a");
+			ModContainer c = createMod("c", false, "b");
+			ModContainer d = createMod("d", true);
+			// depends on a through e, which has no entrypoints
+			ModContainer e = createMod("e", false, "a");
+			ModContainer f = createMod("f", true, "e");
+
+			List<EntrypointStorage.Entry> entries = Arrays.asList(new TestEntry(c, false), new TestEntry(f, false), new TestEntry(b, false),
+				new TestEntry(d, false), new TestEntry(a, false));
+			List<String> invoked = Collections.synchronizedList(new ArrayList<>());
+
+			testTrue(EntrypointScheduler.invoke("main", String.class, (id) -> {
+				if (id.equals("a")) {
+					try {
+						Thread.sleep(5);
+					} catch (InterruptedException ex) {
+						throw new RuntimeException(ex);
+					}
+				}
+
+				invoked.add(id);
+			}, entries, createModMap(a, b, c, d, e, f)));
+
+			testTrue(invoked.size() == 5);
+			testTrue(invoked.indexOf("a") < invoked.indexOf("b"));
+			testTrue(invoked.indexOf("b") < invoked.indexOf("c"));
+			testTrue(invoked.indexOf("a") < invoked.indexOf("f"));
+		}
+
+		// Test: nothing runs if an entrypoint can't be created.
+		{
+			ModContainer a = createMod("a", true);
+			ModContainer b = createMod("b", false);
+			List<String> invoked = Collections.synchronizedList(new ArrayList<>());
+			EntrypointException exception = null;
+
+			try {
+				EntrypointScheduler.invoke("main", String.class, invoked::add,
+					Arrays.asList(new TestEntry(a, false), new TestEntry(b, true)), createModMap(a, b));
+			} catch (EntrypointException ex) {
+				exception = ex;
+			}
+
+			testTrue(exception != null && exception.getSuppressed().length == 1);
+			testTrue(invoked.isEmpty());
+		}
+
+		// Test: invocation errors are collected, and dependents still run.
+		{
+			ModContainer a = createMod("a", true);
+			ModContainer b = createMod("b", true, "a");
+			List<String> invoked = Collections.synchronizedList(new ArrayList<>());
+			RuntimeException exception = null;
+
+			try {
+				EntrypointScheduler.invoke("main", String.class, (id) -> {
+					invoked.add(id);
+
+					if (id.equals("a")) {
+						throw new IllegalStateException();
+					}
+				}, Arrays.asList(new TestEntry(a, false), new TestEntry(b, false)), createModMap(a, b));
+			} catch (RuntimeException ex) {
+				exception = ex;
+			}
+
+			testTrue(exception != null && exception.getSuppressed().length == 1);
+			testTrue(invoked.equals(Arrays.asList("a", "b")));
+		}
+
+		// Test: without parallel-safe mods nothing is invoked, and the caller falls back.
+		{
+			ModContainer a = createMod("a", false);
+			List<String> invoked = new ArrayList<>();
+
+			testTrue(!EntrypointScheduler.invoke("main", String.class, invoked::add, Collections.singletonList(new TestEntry(a, false)), createModMap(a)));
+			testTrue(invoked.isEmpty());
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader;
+
+import net.fabricmc.loader.metadata.ModMetadataParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ModSortingTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static List<String> sort(ModContainer... mods) {
+		FabricLoader loader = new FabricLoader();
+
+		for (ModContainer mod : mods) {
+			loader.mods.add(mod);
+			loader.modMap.put(mod.getInfo().getId(), mod);
+		}
+
+		loader.sortMods();
+
+		List<String> ret = new ArrayList<>();
+
+		for (ModContainer mod : loader.mods) {
+			ret.add(mod.getInfo().getId());
+		}
+
+		return ret;
+	}
+
+	private static ModContainer createMod(String id, String... depends) {
+		return EntrypointSchedulerTests.createMod(id, false, depends);
+	}
+
+	public static void main(String[] args) {
+		// Test: independent mods are ordered by ID, whatever order they were found in.
+		testTrue(sort(createMod("c"), createMod("a"), createMod("b")).equals(Arrays.asList("a", "b", "c")));
+
+		// Test: dependencies come first, ties are still broken by ID.
+		testTrue(sort(createMod("a", "z"), createMod("b"), createMod("z")).equals(Arrays.asList("b", "z", "a")));
+		testTrue(sort(createMod("a", "b", "c"), createMod("b", "c"), createMod("c")).equals(Arrays.asList("c", "b", "a")));
+
+		// Test: missing dependencies and dependencies on the mod itself are ignored.
+		testTrue(sort(createMod("b", "missing"), createMod("a", "a")).equals(Arrays.asList("a", "b")));
+
+		// Test: a cycle is broken at its lowest ID, and mods depending on it still come after it.
+		testTrue(sort(createMod("x", "y"), createMod("y", "x"), createMod("w", "x")).equals(Arrays.asList("x", "w", "y")));
+		testTrue(sort(createMod("b", "c"), createMod("c", "b"), createMod("a")).equals(Arrays.asList("a", "b", "c")));
+
+		// Test: recommended mods are ordered like dependencies.
+		{
+			String json = "{\"schemaVersion\": 1, \"id\": \"a\", \"version\": \"1.0.0\", \"recommends\": {\"b\": \"*\"}}";
+			ModContainer a = new ModContainer(ModMetadataParser.getMods(FabricLoader.INSTANCE, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))[0], null);
+			testTrue(sort(a, createMod("b")).equals(Arrays.asList("b", "a")));
+		}
+	}
+}
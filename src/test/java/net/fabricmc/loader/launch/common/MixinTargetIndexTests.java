@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.common;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.fabricmc.api.EnvType;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class MixinTargetIndexTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	/**
+	 * @param targets The {@link Type}s for {@code value} and strings for {@code targets}.
+	 */
+	private static byte[] createMixin(String name, Object... targets) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name.replace('.', '/'), null, "java/lang/Object", null);
+
+		AnnotationVisitor annotation = writer.visitAnnotation("Lorg/spongepowered/asm/mixin/Mixin;", false);
+		AnnotationVisitor value = annotation.visitArray("value");
+
+		for (Object target : targets) {
+			if (target instanceof Type) {
+				value.visit(null, target);
+			}
+		}
+
+		value.visitEnd();
+		AnnotationVisitor stringTargets = annotation.visitArray("targets");
+
+		for (Object target : targets) {
+			if (target instanceof String) {
+				stringTargets.visit(null, target);
+			}
+		}
+
+		stringTargets.visitEnd();
+		annotation.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static FabricLauncher createLauncher(Map<String, byte[]> classes) {
+		return (FabricLauncher) Proxy.newProxyInstance(MixinTargetIndexTests.class.getClassLoader(), new Class<?>[] { FabricLauncher.class }, (proxy, method, args) -> {
+			if (!method.getName().equals("getClassByteArray")) {
+				throw new UnsupportedOperationException(method.getName());
+			}
+
+			return classes.get((String) args[0]);
+		});
+	}
+
+	private static JsonObject parse(String json) {
+		return new JsonParser().parse(json.replace('\'', '"')).getAsJsonObject();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, byte[]> classes = new HashMap<>();
+		classes.put("test.mixin.ValueMixin", createMixin("test.mixin.ValueMixin", Type.getObjectType("game/ValueTarget"), Type.getObjectType("game/OtherValueTarget")));
+		classes.put("test.mixin.StringMixin", createMixin("test.mixin.StringMixin", "game/StringTarget"));
+		classes.put("test.mixin.ClientMixin", createMixin("test.mixin.ClientMixin", Type.getObjectType("game/ClientTarget")));
+		classes.put("test.mixin.ServerMixin", createMixin("test.mixin.ServerMixin", Type.getObjectType("game/ServerTarget")));
+		FabricLauncher launcher = createLauncher(classes);
+
+		// Test: value targets are indexed, and the mixin package gets a trailing dot
+		{
+			MixinTargetIndex.ConfigTargets targets = MixinTargetIndex.index(parse("{'package': 'test.mixin', 'mixins': ['ValueMixin']}"), null, EnvType.CLIENT, launcher);
+			testTrue(targets != null);
+			testTrue(targets.mixinPackage.equals("test.mixin."));
+			testTrue(targets.targets.equals(new HashSet<>(Arrays.asList("game.ValueTarget", "game.OtherValueTarget"))));
+		}
+
+		// Test: string targets are indexed as written without a refmap
+		{
+			MixinTargetIndex.ConfigTargets targets = MixinTargetIndex.index(parse("{'package': 'test.mixin.', 'mixins': ['StringMixin']}"), null, EnvType.CLIENT, launcher);
+			testTrue(targets.mixinPackage.equals("test.mixin."));
+			testTrue(targets.targets.equals(new HashSet<>(Arrays.asList("game.StringTarget"))));
+		}
+
+		// Test: string targets are indexed as written and as mapped by every refmap section
+		{
+			JsonObject refmap = parse("{'mappings': {'test/mixin/StringMixin': {'game/StringTarget': 'a'}},"
+					+ " 'data': {'named:intermediary': {'test/mixin/StringMixin': {'game/StringTarget': 'net/minecraft/class_1'}},"
+					+ " 'searge': {'test/mixin/OtherMixin': {'game/StringTarget': 'b'}}}}");
+			MixinTargetIndex.ConfigTargets targets = MixinTargetIndex.index(parse("{'package': 'test.mixin', 'mixins': ['StringMixin']}"), refmap, EnvType.CLIENT, launcher);
+			testTrue(targets.targets.equals(new HashSet<>(Arrays.asList("game.StringTarget", "a", "net.minecraft.class_1"))));
+		}
+
+		// Test: value targets aren't looked up in the refmap
+		{
+			JsonObject refmap = parse("{'mappings': {'test/mixin/ValueMixin': {'game/ValueTarget': 'a'}}}");
+			MixinTargetIndex.ConfigTargets targets = MixinTargetIndex.index(parse("{'package': 'test.mixin', 'mixins': ['ValueMixin']}"), refmap, EnvType.CLIENT, launcher);
+			testTrue(!targets.targets.contains("a"));
+		}
+
+		// Test: only the side list of the current environment is indexed, next to the common one
+		{
+			JsonObject config = parse("{'package': 'test.mixin', 'mixins': ['StringMixin'], 'client': ['ClientMixin'], 'server': ['ServerMixin']}");
+			MixinTargetIndex.ConfigTargets client = MixinTargetIndex.index(config, null, EnvType.CLIENT, launcher);
+			MixinTargetIndex.ConfigTargets server = MixinTargetIndex.index(config, null, EnvType.SERVER, launcher);
+			testTrue(client.targets.equals(new HashSet<>(Arrays.asList("game.StringTarget", "game.ClientTarget"))));
+			testTrue(server.targets.equals(new HashSet<>(Arrays.asList("game.StringTarget", "game.ServerTarget"))));
+		}
+
+		// Test: configurations with a plugin aren't indexed, as the plugin may add mixins
+		testTrue(MixinTargetIndex.index(parse("{'package': 'test.mixin', 'plugin': 'test.Plugin', 'mixins': ['ValueMixin']}"), null, EnvType.CLIENT, launcher) == null);
+
+		// Test: configurations whose mixin classes can't be read aren't indexed
+		testTrue(MixinTargetIndex.index(parse("{'package': 'test.mixin', 'mixins': ['ValueMixin', 'MissingMixin']}"), null, EnvType.CLIENT, launcher) == null);
+		testTrue(MixinTargetIndex.index(parse("{'package': 'test.mixin', 'server': ['MissingMixin']}"), null, EnvType.SERVER, launcher) == null);
+
+		// Test: configurations without a package aren't indexed
+		testTrue(MixinTargetIndex.index(parse("{'mixins': ['ValueMixin']}"), null, EnvType.CLIENT, launcher) == null);
+		testTrue(MixinTargetIndex.index(parse("{'package': '', 'mixins': ['ValueMixin']}"), null, EnvType.CLIENT, launcher) == null);
+
+		// Test: the index answers by configuration name, and not at all for configurations it doesn't have
+		{
+			Map<String, MixinTargetIndex.ConfigTargets> configs = new HashMap<>();
+			configs.put("test.mixins.json", MixinTargetIndex.index(parse("{'package': 'test.mixin', 'mixins': ['ValueMixin']}"), null, EnvType.CLIENT, launcher));
+			MixinTargetIndex index = new MixinTargetIndex(configs);
+			testTrue(index.getIndexedConfigCount() == 1);
+			testTrue(index.getTargets("test.mixins.json").contains("game.ValueTarget"));
+			testTrue(index.getMixinPackage("test.mixins.json").equals("test.mixin."));
+			testTrue(index.getTargets("plugin.mixins.json") == null);
+			testTrue(index.getMixinPackage("plugin.mixins.json") == null);
+		}
+	}
+}
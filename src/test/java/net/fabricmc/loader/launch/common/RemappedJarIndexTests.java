@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.common;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+public class RemappedJarIndexTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static byte[] createClass(String superName, String[] interfaces, String methodName, int returnValue) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "a", null, superName, interfaces);
+
+		MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, methodName, "()I", null, null);
+		method.visitCode();
+		method.visitLdcInsn(returnValue);
+		method.visitInsn(Opcodes.IRETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	public static void main(String[] args) throws Exception {
+		// Test: the shape ignores code but covers the superclass, interfaces and members.
+		{
+			String shape = RemappedJarIndex.readShape(createClass("java/lang/Object", new String[0], "m", 1));
+
+			testTrue(shape.equals(RemappedJarIndex.readShape(createClass("java/lang/Object", new String[0], "m", 2))));
+			testTrue(!shape.equals(RemappedJarIndex.readShape(createClass("b", new String[0], "m", 1))));
+			testTrue(!shape.equals(RemappedJarIndex.readShape(createClass("java/lang/Object", new String[] { "c" }, "m", 1))));
+			testTrue(!shape.equals(RemappedJarIndex.readShape(createClass("java/lang/Object", new String[0], "n", 1))));
+		}
+
+		Path dir = Files.createTempDirectory("remapped-jar-index");
+
+		try {
+			// Test: scanning a JAR, reading shapes and a write/read round trip.
+			Path jarPath = dir.resolve("input.jar");
+			byte[] classBytes = createClass("java/lang/Object", new String[0], "m", 1);
+
+			try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jarPath))) {
+				out.putNextEntry(new JarEntry("a.class"));
+				out.write(classBytes);
+				out.putNextEntry(new JarEntry("res.txt"));
+				out.write(1);
+			}
+
+			Map<String, RemappedJarIndex.ClassRecord> classes;
+
+			try (JarFile jar = new JarFile(jarPath.toFile())) {
+				classes = RemappedJarIndex.scan(jar);
+				testTrue(classes.keySet().size() == 1 && classes.containsKey("a"));
+				testTrue(classes.get("a").size == classBytes.length);
+
+				RemappedJarIndex.readShapes(jar, classes);
+				testTrue(classes.get("a").shape.equals(RemappedJarIndex.readShape(classBytes)));
+			}
+
+			classes.get("a").remappedName = "net/example/A";
+			Path indexPath = RemappedJarIndex.getPath(dir.resolve("output.jar"));
+			new RemappedJarIndex("key", classes).write(indexPath);
+
+			RemappedJarIndex read = RemappedJarIndex.read(indexPath);
+			testTrue(read != null && read.key.equals("key"));
+
+			RemappedJarIndex.ClassRecord record = read.classes.get("a");
+			testTrue(record.sameContents(classes.get("a")));
+			testTrue(record.shape.equals(classes.get("a").shape));
+			testTrue(record.remappedName.equals("net/example/A"));
+
+			// Test: missing and outdated indexes are not used.
+			testTrue(RemappedJarIndex.read(dir.resolve("missing.classes")) == null);
+
+			Map<String, RemappedJarIndex.ClassRecord> unwritten = new HashMap<>();
+			unwritten.put("b", new RemappedJarIndex.ClassRecord(1, 2));
+			new RemappedJarIndex("key", unwritten).write(indexPath);
+			testTrue(RemappedJarIndex.read(indexPath).classes.get("b").remappedName.isEmpty());
+
+			try (BufferedWriter writer = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8)) {
+				writer.write("fabric-remapped-jar-index 1\nkey\na\t0\t1\tnet/example/A\n");
+			}
+
+			testTrue(RemappedJarIndex.read(indexPath) == null);
+		} finally {
+			for (Path path : new Path[] { dir.resolve("input.jar"), dir.resolve("output.jar.classes"), dir }) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.knot;
+
+import net.fabricmc.api.EnvType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KnotClassDelegateTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static byte[] createClass(String name) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("knot-class-delegate");
+		Path ownClass = dir.resolve("Own.class");
+		Path parentClass = dir.resolve("Parent.class");
+		Files.write(ownClass, createClass("test/Own"));
+		Files.write(parentClass, createClass("test/Parent"));
+		AtomicInteger lookups = new AtomicInteger();
+
+		KnotClassLoaderInterface itf = new KnotClassLoaderInterface() {
+			@Override
+			public KnotClassDelegate getDelegate() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public boolean isClassLoaded(String name) {
+				return false;
+			}
+
+			@Override
+			public void addURL(URL url) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public URL getResource(String name, boolean skipOriginalLoader) {
+				lookups.incrementAndGet();
+
+				try {
+					if (name.equals("test/Own.class")) {
+						return ownClass.toUri().toURL();
+					} else if (name.equals("test/Parent.class") && !skipOriginalLoader) {
+						return parentClass.toUri().toURL();
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+
+				return null;
+			}
+
+			@Override
+			public InputStream getResourceAsStream(String filename, boolean skipOriginalLoader) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		KnotClassDelegate delegate = new KnotClassDelegate(false, EnvType.CLIENT, itf, null);
+
+		// Test: a class from the loader's own URLs is cached and still served when the original loader is skipped
+		byte[] ownBytes = delegate.getClassByteArray("test.Own", false);
+		testTrue(Arrays.equals(ownBytes, Files.readAllBytes(ownClass)));
+		int ownLookups = lookups.get();
+		testTrue(delegate.getClassByteArray("test.Own", true) == ownBytes);
+		testTrue(lookups.get() == ownLookups);
+
+		// Test: a class only the original loader has is cached, but not served when it is skipped
+		testTrue(delegate.getClassByteArray("test.Parent", false) != null);
+		int parentLookups = lookups.get();
+		testTrue(delegate.getClassByteArray("test.Parent", true) == null);
+		testTrue(lookups.get() == parentLookups);
+
+		// Test: skipping the original loader for an uncached class doesn't ask it
+		delegate = new KnotClassDelegate(false, EnvType.CLIENT, itf, null);
+		testTrue(delegate.getClassByteArray("test.Parent", true) == null);
+		testTrue(delegate.getClassByteArray("test.Parent", false) != null);
+
+		// Test: every caller gets its own class node
+		testTrue(delegate.getClassNode("test.Own") != delegate.getClassNode("test.Own"));
+
+		// Test: missing classes throw
+		try {
+			delegate.getClassNode("test.Missing");
+			testTrue(false);
+		} catch (ClassNotFoundException e) {
+			// expected
+		}
+
+		Files.delete(ownClass);
+		Files.delete(parentClass);
+		Files.delete(dir);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.knot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class KnotMixinTargetsTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	/**
+	 * Stands in for Mixin, which drops configurations from its pending ones when selecting them.
+	 */
+	private static final class TestConfigs implements KnotMixinTargets.Configs {
+		final Set<String> pending = new HashSet<>();
+		final Map<String, Set<String>> targets = new HashMap<>();
+		final Map<String, String> packages = new HashMap<>();
+
+		void add(String config, String mixinPackage) {
+			pending.add(config);
+			targets.put(config, new HashSet<>());
+			packages.put(config, mixinPackage);
+		}
+
+		void select(String config, String... configTargets) {
+			pending.remove(config);
+			targets.get(config).addAll(Arrays.asList(configTargets));
+		}
+
+		@Override
+		public Set<String> getPending() {
+			return new HashSet<>(pending);
+		}
+
+		@Override
+		public Set<String> getTargets(String config) {
+			return targets.get(config);
+		}
+
+		@Override
+		public String getMixinPackage(String config) {
+			return packages.get(config);
+		}
+	}
+
+	public static void main(String[] args) {
+		Object lock = new Object();
+		Map<String, Set<String>> indexedTargets = Collections.singletonMap("indexed.mixins.json", Collections.singleton("game.Indexed"));
+		Map<String, String> indexedPackages = Collections.singletonMap("indexed.mixins.json", "indexed.mixin.");
+
+		// Test: every class goes through Mixin until it is initialized
+		KnotMixinTargets mixinTargets = new KnotMixinTargets(true);
+		testTrue(mixinTargets.isRequired("game.Other"));
+
+		// Test: with only indexed configurations, only their targets and mixin packages go through Mixin
+		TestConfigs configs = new TestConfigs();
+		configs.add("indexed.mixins.json", "indexed.mixin.");
+		mixinTargets.init(lock, configs, Collections.singletonList("indexed.mixins.json"), indexedTargets::get, indexedPackages::get);
+		testTrue(mixinTargets.isRequired("game.Indexed"));
+		testTrue(mixinTargets.isRequired("indexed.mixin.IndexedMixin"));
+		testTrue(!mixinTargets.isRequired("game.Other"));
+
+		// Test: indexed targets still go through Mixin after their configuration was selected
+		configs.select("indexed.mixins.json");
+		testTrue(mixinTargets.isRequired("game.Indexed"));
+		testTrue(!mixinTargets.isRequired("game.Other"));
+
+		// Test: an unindexed configuration sends every class through Mixin until it is selected
+		mixinTargets = new KnotMixinTargets(true);
+		configs = new TestConfigs();
+		configs.add("indexed.mixins.json", "indexed.mixin.");
+		configs.add("plugin.mixins.json", "plugin.mixin.");
+		mixinTargets.init(lock, configs, Arrays.asList("indexed.mixins.json", "plugin.mixins.json"), indexedTargets::get, indexedPackages::get);
+		testTrue(mixinTargets.isRequired("game.Other"));
+		testTrue(mixinTargets.isRequired("game.Plugin"));
+
+		// Test: a target of the unindexed configuration loaded after its selection goes through Mixin
+		configs.select("indexed.mixins.json");
+		configs.select("plugin.mixins.json", "game.Plugin");
+		testTrue(mixinTargets.isRequired("game.Plugin"));
+		testTrue(mixinTargets.isRequired("plugin.mixin.PluginMixin"));
+		testTrue(mixinTargets.isRequired("game.Indexed"));
+		testTrue(!mixinTargets.isRequired("game.Other"));
+
+		// Test: configurations registered with Mixin by anyone else are treated as unindexed
+		mixinTargets = new KnotMixinTargets(true);
+		configs = new TestConfigs();
+		configs.add("indexed.mixins.json", "indexed.mixin.");
+		configs.add("other.mixins.json", "other.mixin.");
+		mixinTargets.init(lock, configs, Collections.singletonList("indexed.mixins.json"), indexedTargets::get, indexedPackages::get);
+		testTrue(mixinTargets.isRequired("game.Other"));
+
+		// Test: a registered configuration Mixin doesn't know keeps every class going through it
+		mixinTargets = new KnotMixinTargets(true);
+		configs = new TestConfigs();
+		mixinTargets.init(lock, configs, Collections.singletonList("rejected.mixins.json"), indexedTargets::get, indexedPackages::get);
+		testTrue(mixinTargets.isRequired("game.Other"));
+
+		// Test: with the bypass disabled, every class goes through Mixin
+		mixinTargets = new KnotMixinTargets(false);
+		mixinTargets.init(lock, new TestConfigs(), Collections.emptyList(), indexedTargets::get, indexedPackages::get);
+		testTrue(mixinTargets.isRequired("game.Other"));
+	}
+}
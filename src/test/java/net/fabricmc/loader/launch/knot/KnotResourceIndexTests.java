@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.launch.knot;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class KnotResourceIndexTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static void writeJar(Path path, String... entries) throws Exception {
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+			for (String entry : entries) {
+				out.putNextEntry(new JarEntry(entry));
+				out.write(path.getFileName().toString().getBytes("UTF-8"));
+			}
+		}
+	}
+
+	private static String read(URL url) throws Exception {
+		try (InputStream stream = url.openStream()) {
+			byte[] data = new byte[256];
+			int len = stream.read(data);
+			return new String(data, 0, len, "UTF-8");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("knot-resource-index");
+
+		try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix())) {
+			Path diskJar = dir.resolve("disk.jar");
+			writeJar(diskJar, "a/shared.txt", "a/disk.txt");
+			Path nestedJar = fs.getPath("/nested.jar");
+			writeJar(nestedJar, "a/shared.txt", "b/nested.txt");
+			Path classDir = dir.resolve("classes");
+			Files.createDirectories(classDir.resolve("b"));
+			Files.write(classDir.resolve("b/dir.txt"), "classes".getBytes("UTF-8"));
+
+			URL[] urls = {
+				nestedJar.toUri().toURL(),
+				// a URL no file system exists for, which has to be left to a URL class loader
+				new URL("http://127.0.0.1:1/missing.jar"),
+				diskJar.toUri().toURL(),
+				classDir.toUri().toURL()
+			};
+
+			KnotResourceIndex index = new KnotResourceIndex();
+
+			for (URL url : urls) {
+				index.add(url);
+			}
+
+			URLClassLoader reference = new URLClassLoader(urls, null);
+
+			// Test: lookups match the URL class loader, including nested JARs on another file system.
+			for (String name : new String[] { "a/shared.txt", "a/disk.txt", "b/nested.txt", "b/dir.txt", "b/missing.txt", "missing.txt" }) {
+				URL expected = reference.findResource(name);
+				URL actual = index.findResource(name);
+				testTrue(expected == null ? actual == null : actual != null && expected.toExternalForm().equals(actual.toExternalForm()));
+
+				List<String> expectedAll = new ArrayList<>();
+				for (URL url : Collections.list(reference.findResources(name))) {
+					expectedAll.add(url.toExternalForm());
+				}
+
+				List<String> actualAll = new ArrayList<>();
+				for (URL url : index.findResources(name)) {
+					actualAll.add(url.toExternalForm());
+				}
+
+				testTrue(expectedAll.equals(actualAll));
+			}
+
+			// Test: the URLs found can be read, and the first URL added wins.
+			testTrue(read(index.findResource("a/shared.txt")).equals("nested.jar"));
+			testTrue(read(index.findResource("b/dir.txt")).equals("classes"));
+		} finally {
+			Files.deleteIfExists(dir.resolve("classes/b/dir.txt"));
+			Files.deleteIfExists(dir.resolve("classes/b"));
+			Files.deleteIfExists(dir.resolve("classes"));
+			Files.deleteIfExists(dir.resolve("disk.jar"));
+			Files.deleteIfExists(dir);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.util;
+
+import net.fabricmc.loader.api.LanguageAdapterException;
+import net.fabricmc.test.TestLauncher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Run on both Java 8 and Java 9+, since the private lookup LambdaMetafactory needs is
+ * obtained through the Lookup constructor on the former and privateLookupIn on the latter.
+ */
+public class DefaultLanguageAdapterTests {
+	public interface Initializer {
+		void onInitialize();
+	}
+
+	public static class Target {
+		static int calls;
+		public static final Initializer FIELD = () -> calls++;
+
+		public static void staticInit() {
+			calls++;
+		}
+
+		public void instanceInit() {
+			calls++;
+		}
+
+		private static void privateInit() {
+			calls++;
+		}
+
+		public static String supply() {
+			return "supplied";
+		}
+
+		public static int twice(int value) {
+			return value * 2;
+		}
+	}
+
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static <T> T create(String value, Class<T> type) throws LanguageAdapterException {
+		return DefaultLanguageAdapter.INSTANCE.create(null, value, type);
+	}
+
+	private static void testLambda(String value) throws Exception {
+		Initializer initializer = create(value, Initializer.class);
+		testTrue(!Proxy.isProxyClass(initializer.getClass()));
+
+		int calls = Target.calls;
+		initializer.onInitialize();
+		testTrue(Target.calls == calls + 1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		TestLauncher.get();
+		String target = Target.class.getName();
+
+		// Test: the lookup path matching the running Java version is available and has private access.
+		{
+			boolean java8 = System.getProperty("java.specification.version").startsWith("1.");
+			testTrue(java8 == (getStatic("privateLookupIn") == null));
+			testTrue(java8 == (getStatic("lookupConstructor") != null));
+
+			MethodHandles.Lookup lookup = DefaultLanguageAdapter.getPrivateLookup(Target.class);
+			testTrue(lookup != null && lookup.lookupClass() == Target.class);
+			testTrue((lookup.lookupModes() & MethodHandles.Lookup.PRIVATE) != 0);
+		}
+
+		// Test: static, instance and private methods are implemented through LambdaMetafactory.
+		testLambda(target + "::staticInit");
+		testLambda(target + "::instanceInit");
+		testLambda(target + "::privateInit");
+
+		// Test: generic and primitive interface methods.
+		{
+			@SuppressWarnings("unchecked")
+			Supplier<String> supplier = create(target + "::supply", Supplier.class);
+			testTrue(!Proxy.isProxyClass(supplier.getClass()));
+			testTrue(supplier.get().equals("supplied"));
+
+			IntUnaryOperator operator = create(target + "::twice", IntUnaryOperator.class);
+			testTrue(!Proxy.isProxyClass(operator.getClass()));
+			testTrue(operator.applyAsInt(21) == 42);
+		}
+
+		// Test: static fields are returned as they are.
+		testTrue(create(target + "::FIELD", Initializer.class) == Target.FIELD);
+
+		// Test: classes are instantiated directly.
+		testTrue(create(target, Target.class) instanceof Target);
+	}
+
+	private static Object getStatic(String name) throws ReflectiveOperationException {
+		Field field = DefaultLanguageAdapter.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(null);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class JarEntryIndexTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	private static void writeJar(Path path, String... entries) throws Exception {
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+			for (String entry : entries) {
+				out.putNextEntry(new JarEntry(entry));
+				out.write(entry.getBytes("UTF-8"));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("jar-entry-index");
+		Path jar = dir.resolve("test.jar");
+		writeJar(jar, "a/A.class");
+
+		// Test: an unchanged JAR is indexed once
+		JarEntryIndex index = JarEntryIndex.get(jar);
+		testTrue(index.contains("a/A.class"));
+		testTrue(JarEntryIndex.get(jar) == index);
+		testTrue(JarEntryIndex.get(dir.resolve(".").resolve("test.jar")) == index);
+
+		// Test: a JAR replaced at the same path, like a published remap output, is indexed again
+		Path tmp = dir.resolve("test.jar.tmp");
+		writeJar(tmp, "a/A.class", "b/B.class");
+		Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		JarEntryIndex replaced = JarEntryIndex.get(jar);
+		testTrue(replaced != index);
+		testTrue(replaced.contains("b/B.class"));
+		testTrue(new String(replaced.read("b/B.class"), "UTF-8").equals("b/B.class"));
+
+		// Test: a JAR rewritten in place with a new modification time is indexed again
+		writeJar(jar, "c/C.class", "d/D.class");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10000));
+		JarEntryIndex rewritten = JarEntryIndex.get(jar);
+		testTrue(rewritten != replaced);
+		testTrue(rewritten.contains("c/C.class") && !rewritten.contains("a/A.class"));
+
+		Files.delete(jar);
+		Files.delete(dir);
+	}
+}
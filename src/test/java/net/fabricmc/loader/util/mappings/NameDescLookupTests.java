@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.loader.util.mappings;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class NameDescLookupTests {
+	private static void testTrue(boolean b) {
+		if (!b) {
+			throw new RuntimeException("Test failed!");
+		}
+	}
+
+	public static void main(String[] args) {
+		// Test: unique mappings, and misses on unknown names, descriptors and combinations.
+		{
+			NameDescLookup lookup = new NameDescLookup();
+			lookup.put("a", "()V", "foo");
+			lookup.put("b", "(I)V", "bar");
+
+			testTrue("foo".equals(lookup.get("a", "()V")));
+			testTrue("bar".equals(lookup.get("b", "(I)V")));
+			testTrue(lookup.get("a", "(I)V") == null);
+			testTrue(lookup.get("c", "()V") == null);
+			testTrue(lookup.get("a", "(J)V") == null);
+		}
+
+		// Test: repeated and ambiguous mappings.
+		{
+			NameDescLookup lookup = new NameDescLookup();
+			lookup.put("a", "()V", "foo");
+			lookup.put("a", "()V", "foo");
+			testTrue("foo".equals(lookup.get("a", "()V")));
+
+			lookup.put("a", "()V", "bar");
+			lookup.put("a", "()V", "foo");
+			lookup.put("a", "()V", "baz");
+			Object value = lookup.get("a", "()V");
+			testTrue(value instanceof String[]);
+			testTrue(((String[]) value).length == 3);
+			testTrue(new HashSet<>(Arrays.asList((String[]) value)).equals(new HashSet<>(Arrays.asList("foo", "bar", "baz"))));
+		}
+
+		// Test: entries survive growing the table past its initial capacity.
+		{
+			NameDescLookup lookup = new NameDescLookup();
+
+			for (int i = 0; i < 5000; i++) {
+				lookup.put("m" + i, "(" + (i % 7) + ")V", "mapped" + i);
+			}
+
+			for (int i = 0; i < 5000; i++) {
+				testTrue(("mapped" + i).equals(lookup.get("m" + i, "(" + (i % 7) + ")V")));
+				testTrue(lookup.get("m" + i, "(" + ((i + 1) % 7) + ")V") == null);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.fabricmc.test;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.launch.common.FabricLauncherBase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Minimal launcher for tests, which loads everything from the class path of the test itself.
+ */
+public class TestLauncher extends FabricLauncherBase {
+	private static TestLauncher instance;
+
+	private TestLauncher() {
+
+	}
+
+	public static synchronized TestLauncher get() {
+		if (instance == null) {
+			instance = new TestLauncher();
+		}
+
+		return instance;
+	}
+
+	@Override
+	public void propose(URL url) {
+
+	}
+
+	@Override
+	public EnvType getEnvironmentType() {
+		return EnvType.CLIENT;
+	}
+
+	@Override
+	public boolean isClassLoaded(String name) {
+		return false;
+	}
+
+	@Override
+	public InputStream getResourceAsStream(String name) {
+		return getTargetClassLoader().getResourceAsStream(name);
+	}
+
+	@Override
+	public ClassLoader getTargetClassLoader() {
+		return TestLauncher.class.getClassLoader();
+	}
+
+	@Override
+	public byte[] getClassByteArray(String name) throws IOException {
+		try (InputStream stream = getResourceAsStream(name.replace('.', '/') + ".class")) {
+			if (stream == null) {
+				return null;
+			}
+
+			byte[] buffer = new byte[stream.available() + 1];
+			int len = 0;
+			int read;
+
+			while ((read = stream.read(buffer, len, buffer.length - len)) > 0) {
+				len += read;
+
+				if (len == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+			}
+
+			return Arrays.copyOf(buffer, len);
+		}
+	}
+
+	@Override
+	public boolean isDevelopment() {
+		return false;
+	}
+
+	@Override
+	public String getEntrypoint() {
+		return null;
+	}
+
+	@Override
+	public String getTargetNamespace() {
+		return "intermediary";
+	}
+
+	@Override
+	public Collection<URL> getLoadTimeDependencies() {
+		return Collections.emptyList();
+	}
+}